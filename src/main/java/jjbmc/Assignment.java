@@ -23,8 +23,12 @@ public class Assignment {
     }
     @Override
     public String toString() {
+        return toString(new TraceInformation());
+    }
+
+    public String toString(TraceInformation traceInformation) {
         String val = guessedValue == null ? value : guessedValue.toString();
-        String lhs = TraceInformation.applyExpressionMap(this.guess);
+        String lhs = traceInformation.applyExpressionMap(this.guess);
         return "in line " + lineNumber + ": " + lhs + " (" + jbmcVarname + ") = " + val;
     }
 }
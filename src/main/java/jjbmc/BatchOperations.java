@@ -0,0 +1,309 @@
+package jjbmc;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import jjbmc.distributed.Coordinator;
+import jjbmc.distributed.Worker;
+import jjbmc.report.Reporter;
+import org.jspecify.annotations.Nullable;
+import picocli.CommandLine;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static jjbmc.ErrorLogger.*;
+import static picocli.CommandLine.*;
+
+/**
+ * Verifies a whole set of files in a single JVM. All runs share one {@link VerificationSession}, so the
+ * type solver for the JRE and the java compiler are only set up once.
+ */
+@Command(name = "batch", header = "@|bold Verify several files with JJBMC in a single JVM|@")
+public class BatchOperations implements Callable<Integer> {
+    @Parameters(arity = "1..*",
+            description = "Files, directories (searched recursively for .java files) or glob patterns (e.g. 'src/**/*.java') to be verified.")
+    private List<String> targets = new ArrayList<>();
+
+    @Option(names = {"-m", "-manifest"},
+            description = "JSON file mapping file names to lists of JJBMC argument lists, e.g. {\"BubbleSort.java\": [[\"-fi\"], [\"-fil\"]]}. "
+                    + "Files without an entry are run once without additional arguments.")
+    private @Nullable Path manifest;
+
+    @Option(names = {"-a", "-args"},
+            description = "JJBMC arguments used for every file, e.g. -a=\"-u 5 -t 30000\".")
+    private List<String> commonArgs = new ArrayList<>();
+
+    @Option(names = {"-b", "-budget"},
+            description = "Total time in ms for the whole batch. Files are run cheapest first according to the cost history "
+                    + "and every file gets the share of the remaining budget its recorded runtime has.")
+    private long budget;
+
+    @Option(names = {"-ch", "-costHistory"},
+            description = "JSON file in which the runtimes of functions are recorded for -b. (default: .jjbmc-costs.json)")
+    private Path costHistory = Paths.get(".jjbmc-costs.json");
+
+    @Option(names = {"-jfr", "-flightRecording"},
+            description = "Record the whole batch with the JDK Flight Recorder into the given file.")
+    private @Nullable Path jfr;
+
+    @Option(names = {"-rp", "-report"},
+            description = "Write the results of all files to one report, e.g. -rp junit=results.xml. Formats: jsonl, junit, sarif.")
+    private Map<Reporter.Format, Path> reports = new LinkedHashMap<>();
+
+    @Option(names = {"-co", "-coordinate"},
+            description = "Distribute the jbmc calls to workers (see 'worker') that connect to [host:]port. "
+                    + "All files are translated at the same time on this machine.")
+    private @Nullable String coordinate;
+
+    @Option(names = {"-lw", "-localWorkers"},
+            description = "With -co: number of workers started in this JVM, each with one jbmc call at a time.")
+    private int localWorkers;
+
+    @Option(names = {"-tk", "-token"},
+            description = "With -co: token the workers have to present. Required unless -co is a loopback address.")
+    private @Nullable String token;
+
+    @Option(names = {"-h", "-help"}, usageHelp = true,
+            description = "Print usage help and exit.")
+    private boolean usageHelpRequested;
+
+    private final VerificationSession session;
+
+    public BatchOperations() {
+        this(VerificationSession.getDefault());
+    }
+
+    public BatchOperations(VerificationSession session) {
+        this.session = session;
+    }
+
+    public static int run(String... args) {
+        return new CommandLine(new BatchOperations())
+                .setCaseInsensitiveEnumValuesAllowed(true)
+                .setColorScheme(Help.defaultColorScheme(Help.Ansi.AUTO))
+                .execute(args);
+    }
+
+    @Override
+    public Integer call() throws Exception {
+        var files = collectFiles();
+        var variants = readManifest();
+        var common = new ArrayList<String>();
+        for (String arg : commonArgs) {
+            common.addAll(Arrays.asList(arg.trim().split("\\s+")));
+        }
+
+        info("Batch: found %d files.", files.size());
+        var runs = new ArrayList<Map.Entry<Path, List<String>>>();
+        for (Path file : files) {
+            for (List<String> variant : variants.getOrDefault(file.getFileName().toString(), List.of(List.of()))) {
+                runs.add(Map.entry(file, variant));
+            }
+        }
+        var history = CostHistory.load(costHistory);
+        long deadline = System.currentTimeMillis() + budget;
+        if (budget > 0) {
+            runs.sort(Comparator.comparingLong(it -> history.estimateFile(it.getKey())));
+        }
+
+        var recordingFile = jfr;
+        var recording = recordingFile == null ? null : JfrEvents.startRecording();
+        int failed;
+        var reporters = Reporter.open(reports);
+        try {
+            if (coordinate != null) {
+                failed = runDistributed(runs, common, reporters, coordinate);
+            } else {
+                failed = runAll(runs, common, history, deadline, reporters);
+            }
+        } finally {
+            for (Reporter reporter : reporters) {
+                reporter.close();
+            }
+            if (recording != null) {
+                JfrEvents.stopRecording(recording, recordingFile);
+            }
+        }
+        info("Batch finished: %d runs, %d failed.", runs.size(), failed);
+        return failed == 0 ? 0 : 1;
+    }
+
+    private int runAll(List<Map.Entry<Path, List<String>>> runs, List<String> common, CostHistory history, long deadline,
+                       List<Reporter> reporters) {
+        int failed = 0;
+        for (int i = 0; i < runs.size(); i++) {
+            var file = runs.get(i).getKey();
+            var args = new ArrayList<>(common);
+            args.add(file.toString());
+            args.addAll(runs.get(i).getValue());
+            if (budget > 0) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    warn("The time budget is used up, %s is not run.", file);
+                    failed++;
+                    continue;
+                }
+                long pendingCost = runs.subList(i, runs.size()).stream().mapToLong(it -> history.estimateFile(it.getKey())).sum();
+                long share = Math.max(BudgetScheduler.share(remaining, history.estimateFile(file), pendingCost), 1);
+                args.add("-b=" + share);
+                args.add("-ch=" + costHistory);
+            }
+            info("Running %s with params: %s", file, args);
+            try {
+                var options = Main.parseOptions(args.toArray(new String[0]));
+                var operations = new Operations(options, session);
+                reporters.forEach(operations::addListener);
+                int exitCode = operations.call();
+                if (exitCode != 0) {
+                    failed++;
+                }
+                if (exitCode == Operations.EXIT_COUNTEREXAMPLE && options.isFailFast()) {
+                    info("Batch stopped at the first counterexample, %d runs skipped.", runs.size() - i - 1);
+                    break;
+                }
+            } catch (Exception e) {
+                error("Verification of %s failed: %s", file, e.getMessage());
+                debug(e);
+                failed++;
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * Runs all files at the same time and hands their jbmc calls to the workers of a {@link Coordinator}. The results
+     * of a file are passed to the reporters when the file is done, so the reports are not interleaved.
+     */
+    private int runDistributed(List<Map.Entry<Path, List<String>>> runs, List<String> common, List<Reporter> reporters,
+                               String address) throws Exception {
+        if (budget > 0) {
+            warn("The time budget -b is not supported with -co and ignored.");
+        }
+        var failed = new AtomicInteger();
+        var started = new ConcurrentLinkedQueue<Operations>();
+        // the files wait for the workers most of the time, but only so many can be translated at once
+        var translations = new Semaphore(Runtime.getRuntime().availableProcessors());
+        try (var coordinator = new Coordinator(Coordinator.address(address), token)) {
+            if (localWorkers > 0 && !runs.isEmpty()) {
+                // -jbmc is the same for all files, so the options of the first one tell the binary
+                var first = new ArrayList<>(common);
+                first.add(runs.get(0).getKey().toString());
+                var jbmcBin = Main.parseOptions(first.toArray(new String[0])).jbmcBin;
+                for (int i = 0; i < localWorkers; i++) {
+                    new Worker("localhost:" + coordinator.getPort(), 1, jbmcBin,
+                            Paths.get(System.getProperty("java.io.tmpdir"), "jjbmc-worker"), token).start();
+                }
+            }
+            try (var files = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (var run : runs) {
+                    files.submit(() -> {
+                        var file = run.getKey();
+                        var args = new ArrayList<>(common);
+                        args.add(file.toString());
+                        args.addAll(run.getValue());
+                        info("Running %s with params: %s", file, args);
+                        try {
+                            var options = Main.parseOptions(args.toArray(new String[0]));
+                            // the workers limit the number of jbmc calls that run at the same time
+                            options.setJobs(Integer.MAX_VALUE);
+                            var operations = new Operations(options, session);
+                            operations.setLauncher(coordinator);
+                            operations.setTranslations(translations);
+                            var results = new ArrayList<VerificationResult>();
+                            operations.addListener(results::add);
+                            started.add(operations);
+                            int exitCode = operations.call();
+                            synchronized (reporters) {
+                                for (Reporter reporter : reporters) {
+                                    reporter.onStart(file);
+                                    results.forEach(reporter::onResult);
+                                }
+                            }
+                            if (exitCode != 0) {
+                                failed.incrementAndGet();
+                            }
+                            if (exitCode == Operations.EXIT_COUNTEREXAMPLE && options.isFailFast()) {
+                                info("Batch stopped at the first counterexample.");
+                                started.forEach(Operations::cancel);
+                            }
+                        } catch (Exception e) {
+                            error("Verification of %s failed: %s", file, e.getMessage());
+                            debug(e);
+                            failed.incrementAndGet();
+                        }
+                    });
+                }
+            }
+        }
+        return failed.get();
+    }
+
+    private List<Path> collectFiles() throws IOException {
+        var files = new LinkedHashSet<Path>();
+        for (String target : targets) {
+            if (isGlob(target)) {
+                var matcher = FileSystems.getDefault().getPathMatcher("glob:" + target);
+                try (var walk = Files.walk(globBase(target))) {
+                    walk.filter(Files::isRegularFile).filter(matcher::matches).sorted().forEach(files::add);
+                }
+            } else if (Files.isDirectory(Paths.get(target))) {
+                try (var walk = Files.walk(Paths.get(target))) {
+                    walk.filter(Files::isRegularFile)
+                            .filter(it -> it.getFileName().toString().endsWith(".java"))
+                            .sorted()
+                            .forEach(files::add);
+                }
+            } else {
+                files.add(Paths.get(target));
+            }
+        }
+        return new ArrayList<>(files);
+    }
+
+    private static boolean isGlob(String target) {
+        return target.chars().anyMatch(c -> "*?[{".indexOf(c) >= 0);
+    }
+
+    /**
+     * The longest leading part of the pattern that does not contain any wildcards.
+     */
+    private static Path globBase(String pattern) {
+        Path base = pattern.startsWith("/") ? Paths.get("/") : Paths.get("");
+        for (String segment : pattern.split("[/\\\\]")) {
+            if (isGlob(segment)) {
+                break;
+            }
+            base = base.resolve(segment);
+        }
+        return base;
+    }
+
+    private Map<String, List<List<String>>> readManifest() throws IOException {
+        var variants = new HashMap<String, List<List<String>>>();
+        if (manifest == null) {
+            return variants;
+        }
+        var json = (JsonObject) JsonParser.parseString(Files.readString(manifest));
+        for (var entry : json.entrySet()) {
+            var list = new ArrayList<List<String>>();
+            for (JsonElement variant : (JsonArray) entry.getValue()) {
+                var args = new ArrayList<String>();
+                ((JsonArray) variant).forEach(it -> args.add(it.getAsString()));
+                list.add(args);
+            }
+            variants.put(entry.getKey(), list);
+        }
+        return variants;
+    }
+}
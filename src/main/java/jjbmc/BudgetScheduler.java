@@ -0,0 +1,94 @@
+package jjbmc;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Distributes a total wall-clock budget among the jbmc calls of one file, based on the {@link CostHistory}.
+ * <p>
+ * Calls are ordered by their estimated cost, so that cheap functions finish first. When a call starts, it gets
+ * the share of the remaining budget (times the number of parallel jobs) that its estimate has among all calls
+ * that have not started yet, but at least its own estimate. Time that cheap calls do not use is thereby handed
+ * on to the expensive calls at the end.
+ */
+public class BudgetScheduler {
+    private final long deadline;
+    private final int jobs;
+    private final CostHistory history;
+    /**
+     * The estimated cost of the calls that have not started yet, by key.
+     */
+    private final Map<String, Long> pending = new HashMap<>();
+
+    public BudgetScheduler(long budget, int jobs, CostHistory history) {
+        this.deadline = System.currentTimeMillis() + budget;
+        this.jobs = jobs;
+        this.history = history;
+    }
+
+    /**
+     * Sorts the given items by the estimated cost of their keys and registers the keys as pending.
+     * The estimate of a key includes all recorded keys it is a prefix of, e.g. the properties of a function.
+     */
+    public synchronized <T> List<T> order(List<T> items, Function<T, List<String>> keys) {
+        for (T item : items) {
+            keys.apply(item).forEach(it -> pending.put(it, history.estimateAll(it)));
+        }
+        return items.stream()
+                .sorted(Comparator.comparingLong(it -> keys.apply(it).stream().mapToLong(history::estimateAll).sum()))
+                .toList();
+    }
+
+    /**
+     * The timeout in ms for the call with the given key, which is about to start. Zero if the budget is used up.
+     */
+    public synchronized int timeoutFor(String key) {
+        long remaining = deadline - System.currentTimeMillis();
+        long estimate = pending.containsKey(key) ? pending.get(key) : history.estimate(key);
+        long pendingCost = pending.values().stream().mapToLong(Long::longValue).sum();
+        // a call for a single property is accounted to the pending function it belongs to
+        var owner = pending.keySet().stream().filter(key::startsWith).max(Comparator.comparingInt(String::length));
+        if (owner.isEmpty()) {
+            pendingCost += estimate;
+        } else {
+            long left = pending.get(owner.get()) - estimate;
+            if (owner.get().equals(key) || left <= 0) {
+                pending.remove(owner.get());
+            } else {
+                pending.put(owner.get(), left);
+            }
+        }
+        if (remaining <= 0) {
+            return 0;
+        }
+        long share = share(remaining, jobs * estimate, pendingCost);
+        return (int) Math.min(Math.min(remaining, Math.max(share, estimate)), Integer.MAX_VALUE);
+    }
+
+    /**
+     * {@code total * part / whole}, saturated instead of overflowing for large budgets.
+     */
+    static long share(long total, long part, long whole) {
+        whole = Math.max(whole, 1);
+        long high = Math.multiplyHigh(total, part);
+        long low = total * part;
+        if (high == 0 && low >= 0 || high == -1 && low < 0) {
+            return low / whole;
+        }
+        // the product does not fit into a long, the quotient is precise enough as a double
+        return (long) ((double) total * part / whole);
+    }
+
+    public void finished(String key, VerificationResult result) {
+        if (!result.isCached() && result.getStatus() != VerificationResult.Status.ERROR) {
+            history.record(key, result.getTime(), result.getStatus() == VerificationResult.Status.TIMEOUT);
+        }
+    }
+
+    public CostHistory getHistory() {
+        return history;
+    }
+}
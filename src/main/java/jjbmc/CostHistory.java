@@ -0,0 +1,108 @@
+package jjbmc;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static jjbmc.ErrorLogger.debug;
+
+/**
+ * The recorded jbmc runtimes of verification functions, stored as a JSON object that maps a key
+ * ({@code <absolute file>#<function name>}) to the estimated runtime in ms.
+ * <p>
+ * Every finished run moves the estimate half way to the measured time. A run that timed out only gives a lower bound,
+ * so the estimate is doubled instead, up to {@link #MAX_ESTIMATE}. Functions that were never run get
+ * {@link #DEFAULT_ESTIMATE}.
+ */
+public class CostHistory {
+    public static final long DEFAULT_ESTIMATE = 2000;
+    /**
+     * A day; a function that keeps timing out does not get more, and the sums and shares of estimates cannot overflow.
+     */
+    public static final long MAX_ESTIMATE = 24 * 60 * 60 * 1000;
+
+    private final Path file;
+    private final Map<String, Long> estimates = new ConcurrentHashMap<>();
+
+    private CostHistory(Path file) {
+        this.file = file;
+    }
+
+    public static CostHistory load(Path file) {
+        var history = new CostHistory(file);
+        if (Files.exists(file)) {
+            try {
+                var json = (JsonObject) JsonParser.parseString(Files.readString(file));
+                json.entrySet().forEach(it -> history.estimates.put(it.getKey(), clamp(it.getValue().getAsLong())));
+            } catch (IOException | JsonParseException | ClassCastException | IllegalStateException e) {
+                debug("Could not read cost history %s: %s", file, e.getMessage());
+            }
+        }
+        return history;
+    }
+
+    public static String key(Path file, String functionName) {
+        return file.toAbsolutePath().normalize() + "#" + functionName;
+    }
+
+    public long estimate(String key) {
+        return estimates.getOrDefault(key, DEFAULT_ESTIMATE);
+    }
+
+    /**
+     * The estimated runtime of all recorded functions of the given file, or {@link #DEFAULT_ESTIMATE} if
+     * the file was never verified.
+     */
+    public long estimateFile(Path file) {
+        return estimateAll(key(file, ""));
+    }
+
+    /**
+     * The sum of the estimates of all keys that start with the given prefix, e.g. of all properties of a function
+     * checked with -perProperty, or {@link #DEFAULT_ESTIMATE} if there are none.
+     */
+    public long estimateAll(String prefix) {
+        long sum = estimates.entrySet().stream()
+                .filter(it -> it.getKey().startsWith(prefix))
+                .mapToLong(Map.Entry::getValue)
+                .sum();
+        return sum == 0 ? DEFAULT_ESTIMATE : sum;
+    }
+
+    public void record(String key, long time, boolean timedOut) {
+        long measured = clamp(time);
+        estimates.compute(key, (it, old) -> {
+            if (timedOut) {
+                return Math.min(Math.max(old == null ? 0 : old, measured) * 2, MAX_ESTIMATE);
+            }
+            return old == null ? measured : (old + measured) / 2;
+        });
+    }
+
+    private static long clamp(long estimate) {
+        return Math.min(Math.max(estimate, 1), MAX_ESTIMATE);
+    }
+
+    public synchronized void save() {
+        var json = new JsonObject();
+        new TreeMap<>(estimates).forEach(json::addProperty);
+        try {
+            var folder = file.toAbsolutePath().getParent();
+            Files.createDirectories(folder);
+            var tmp = Files.createTempFile(folder, file.getFileName().toString(), ".tmp");
+            Files.writeString(tmp, new GsonBuilder().setPrettyPrinting().create().toJson(json));
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            debug("Could not write cost history %s: %s", file, e.getMessage());
+        }
+    }
+}
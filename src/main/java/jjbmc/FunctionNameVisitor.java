@@ -9,9 +9,7 @@ import com.github.javaparser.ast.body.BodyDeclaration;
 import com.github.javaparser.ast.body.CallableDeclaration;
 import com.github.javaparser.ast.expr.AnnotationExpr;
 import com.github.javaparser.ast.type.Type;
-import com.github.javaparser.resolution.TypeSolver;
 import com.github.javaparser.symbolsolver.JavaSymbolSolver;
-import com.github.javaparser.symbolsolver.resolution.typesolvers.TypeSolverBuilder;
 import lombok.Getter;
 
 import java.io.IOException;
@@ -44,8 +42,7 @@ public class FunctionNameVisitor {
         try {
             var config = new ParserConfiguration();
             config.setProcessJml(true);
-            TypeSolver typeSolver = new TypeSolverBuilder().withCurrentJRE().build();
-            config.setSymbolResolver(new JavaSymbolSolver(typeSolver));
+            config.setSymbolResolver(new JavaSymbolSolver(VerificationSession.getDefault().getTypeSolvers().jre()));
             var cu = new JavaParser(config).parse(fileName);
             if (!cu.isSuccessful()) {
                 cu.getProblems().forEach(System.out::println);
@@ -0,0 +1,173 @@
+package jjbmc;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Compiles java sources that are held in memory and keeps the resulting class files in memory as well.
+ * Already compiled classes can be put on the class path without writing them to disk, which lets
+ * the {@link VerificationSession} compile {@code CProver} and the library files only once.
+ */
+public class InMemoryCompiler {
+    private final JavaCompiler javac;
+
+    public InMemoryCompiler(JavaCompiler javac) {
+        this.javac = javac;
+    }
+
+    /**
+     * @param success     whether javac reported no errors
+     * @param classes     the class files by binary name
+     * @param diagnostics everything javac reported
+     */
+    public record Result(boolean success, Map<String, byte[]> classes, List<Diagnostic<? extends JavaFileObject>> diagnostics) {
+    }
+
+    /**
+     * Compiles the given sources.
+     *
+     * @param sources   the sources by the binary name of their primary class
+     * @param classPath already compiled classes (by binary name) the sources may refer to
+     */
+    public Result compile(Map<String, String> sources, Map<String, byte[]> classPath) throws IOException {
+        var diagnostics = new DiagnosticCollector<JavaFileObject>();
+        var classes = new TreeMap<String, byte[]>();
+        var compilationUnits = new ArrayList<JavaFileObject>();
+        sources.forEach((name, source) -> compilationUnits.add(new SourceFile(name, source)));
+
+        try (var fileManager = new MemoryFileManager(
+                javac.getStandardFileManager(diagnostics, Locale.ENGLISH, StandardCharsets.UTF_8), classPath, classes)) {
+            var task = javac.getTask(new PrintWriter(System.out), fileManager, diagnostics, List.of("-g"), null, compilationUnits);
+            boolean success = task.call();
+            return new Result(success, classes, diagnostics.getDiagnostics());
+        }
+    }
+
+    /**
+     * Writes the given class files below the folder, in the directory layout expected by jbmc's class path.
+     */
+    public static void writeClasses(Map<String, byte[]> classes, Path folder) throws IOException {
+        for (var entry : classes.entrySet()) {
+            var file = folder.resolve(entry.getKey().replace('.', '/') + ".class");
+            Files.createDirectories(file.getParent());
+            Files.write(file, entry.getValue());
+        }
+    }
+
+    private static URI uri(String binaryName, JavaFileObject.Kind kind) {
+        return URI.create("mem:///" + binaryName.replace('.', '/') + kind.extension);
+    }
+
+    private static final class SourceFile extends SimpleJavaFileObject {
+        private final String source;
+
+        private SourceFile(String binaryName, String source) {
+            super(uri(binaryName, Kind.SOURCE), Kind.SOURCE);
+            this.source = source;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return source;
+        }
+    }
+
+    private static final class ClassFile extends SimpleJavaFileObject {
+        private final String binaryName;
+        private final Map<String, byte[]> store;
+
+        private ClassFile(String binaryName, Map<String, byte[]> store) {
+            super(uri(binaryName, Kind.CLASS), Kind.CLASS);
+            this.binaryName = binaryName;
+            this.store = store;
+        }
+
+        @Override
+        public InputStream openInputStream() {
+            return new ByteArrayInputStream(store.get(binaryName));
+        }
+
+        @Override
+        public OutputStream openOutputStream() {
+            return new ByteArrayOutputStream() {
+                @Override
+                public void close() {
+                    store.put(binaryName, toByteArray());
+                }
+            };
+        }
+    }
+
+    /**
+     * Sends all class output to memory and lists the given precompiled classes on the class path.
+     */
+    private static final class MemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+        private final Map<String, byte[]> classPath;
+        private final Map<String, byte[]> output;
+
+        private MemoryFileManager(StandardJavaFileManager fileManager, Map<String, byte[]> classPath, Map<String, byte[]> output) {
+            super(fileManager);
+            this.classPath = classPath;
+            this.output = output;
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind, FileObject sibling) {
+            return new ClassFile(className, output);
+        }
+
+        @Override
+        public Iterable<JavaFileObject> list(Location location, String packageName, Set<JavaFileObject.Kind> kinds, boolean recurse)
+                throws IOException {
+            var result = new ArrayList<JavaFileObject>();
+            super.list(location, packageName, kinds, recurse).forEach(result::add);
+            if (location == StandardLocation.CLASS_PATH && kinds.contains(JavaFileObject.Kind.CLASS)) {
+                for (String name : classPath.keySet()) {
+                    int dot = name.lastIndexOf('.');
+                    var pkg = dot < 0 ? "" : name.substring(0, dot);
+                    if (pkg.equals(packageName) || recurse && pkg.startsWith(packageName + ".")) {
+                        result.add(new ClassFile(name, classPath));
+                    }
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public String inferBinaryName(JavaFileManager.Location location, JavaFileObject file) {
+            if (file instanceof ClassFile classFile) {
+                return classFile.binaryName;
+            }
+            return super.inferBinaryName(location, file);
+        }
+
+        @Override
+        public boolean hasLocation(JavaFileManager.Location location) {
+            return location == StandardLocation.CLASS_PATH || super.hasLocation(location);
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package jjbmc;
 
 import jjbmc.trace.Trace;
-import jjbmc.trace.TraceInformation;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -9,7 +8,9 @@ import lombok.Setter;
 import org.jspecify.annotations.Nullable;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @Getter
 @AllArgsConstructor
@@ -23,6 +24,18 @@ public class JBMCOutput {
     private List<@Nullable String> asserts = new ArrayList<>();
     private List<@Nullable Trace> traces = new ArrayList<>();
     private List<Integer> lineNumbers = new ArrayList<>();
+    /**
+     * Names of all properties jbmc reported as failed, also if the traces were not parsed.
+     */
+    private List<String> failedProperties = new ArrayList<>();
+    /**
+     * The status jbmc reported for every checked property (e.g. SUCCESS or FAILURE), in the order of the output.
+     */
+    private Map<String, String> propertyStatus = new LinkedHashMap<>();
+    /**
+     * The resources jbmc used to produce this output, if it was measured.
+     */
+    @Setter private @Nullable ResourceUsage resources;
 
     public void addProperty(String name, @Nullable Trace trace, int lineNumber, @Nullable String reason, @Nullable String ass) {
         properties.add(name);
@@ -32,6 +45,41 @@ public class JBMCOutput {
         asserts.add(ass);
     }
 
+    /**
+     * Whether the verdict is inconclusive because loops were not unwound far enough, i.e.
+     * all failed properties are unwinding assertions.
+     */
+    public boolean isUnwindingInsufficient() {
+        return !failedProperties.isEmpty() && failedProperties.stream().allMatch(it -> it.contains(".unwind."));
+    }
+
+    /**
+     * Combines the outputs of jbmc runs that each checked a part of the properties of the same function.
+     * The combined status is FAILURE if any part failed and ERROR if any part reported errors.
+     */
+    public static JBMCOutput merge(List<JBMCOutput> outputs) {
+        var res = new JBMCOutput();
+        res.setProverStatus("SUCCESS");
+        for (JBMCOutput output : outputs) {
+            res.messages.addAll(output.messages);
+            res.errors.addAll(output.errors);
+            res.properties.addAll(output.properties);
+            res.reasons.addAll(output.reasons);
+            res.asserts.addAll(output.asserts);
+            res.traces.addAll(output.traces);
+            res.lineNumbers.addAll(output.lineNumbers);
+            res.failedProperties.addAll(output.failedProperties);
+            res.propertyStatus.putAll(output.propertyStatus);
+            if (output.proverStatus.contains("FAILURE")) {
+                res.setProverStatus("FAILURE");
+            }
+        }
+        if (!res.errors.isEmpty()) {
+            res.setProverStatus("ERROR");
+        }
+        return res;
+    }
+
     public String printTrace(String property, boolean printGuesses) {
         StringBuilder sb = new StringBuilder();
         int idx = properties.indexOf(property);
@@ -49,7 +97,7 @@ public class JBMCOutput {
         if (printGuesses) {
             for (Assignment a : trace.getFilteredAssignments()) {
                 if (a.getGuess() != null) {
-                    sb.append(a).append("\n");
+                    sb.append(a.toString(trace.getTraceInformation())).append("\n");
                 }
             }
         }
@@ -73,7 +121,7 @@ public class JBMCOutput {
 
         StringBuilder sb = new StringBuilder();
         for (String k : trace.finalVals.keySet()) {
-            sb.append(TraceInformation.applyExpressionMap(k)).append(" = ").append(trace.finalVals.get(k));
+            sb.append(trace.getTraceInformation().applyExpressionMap(k)).append(" = ").append(trace.finalVals.get(k));
             sb.append("\n");
         }
         return sb.toString();
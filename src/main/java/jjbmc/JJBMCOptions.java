@@ -1,6 +1,9 @@
 package jjbmc;
 
+import jjbmc.report.Reporter;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 import org.jspecify.annotations.Nullable;
 
 import java.io.File;
@@ -22,6 +25,8 @@ import static picocli.CommandLine.*;
 public class JJBMCOptions {
     public static final int jbmcMajorVer = 5;
     public static final int jbmcMinorVer = 22;
+    private static final List<String> DEFAULT_PORTFOLIO = List.of("", "--refine-arrays", "--refine-arithmetic",
+            "--paths lifo");
 
     public List<String> apiArgs = new ArrayList<>(10);
 
@@ -41,7 +46,7 @@ public class JJBMCOptions {
     public boolean forceInliningMethods;
 
     @Option(names = {"-c", "-clock"},
-            description = "Print out timing information.")
+            description = "Print out timing information and the CPU time and peak memory of jbmc.")
     public boolean timed;
 
     @Option(names = {"-dsa", "-dontsplitasserts"},
@@ -49,10 +54,91 @@ public class JJBMCOptions {
     public boolean splitAssertions = true;
 
     @Option(names = {"-t", "-timeout"},
-            description = "Provide a timeout in ms for each jbmc call. (default 10s)",
+            description = "Provide a timeout in ms for each jbmc call, with -au for all calls of a function. (default 10s)",
             arity = "0..1")
     public int timeout = 10000;
 
+    @Option(names = {"-jobs"},
+            description = "Number of jbmc calls that are run in parallel. (default: number of available cores)",
+            arity = "0..1")
+    private int jobs = Runtime.getRuntime().availableProcessors();
+
+    @Option(names = {"-au", "-adaptiveUnwind"},
+            description = "Start every function with the unwind bound -u, by default and at least -mas + 2, and "
+                    + "increase it as long as unwinding assertions fail, within the timeout of the function. "
+                    + "The length of the nondeterministic arrays (-mas) stays the same.")
+    private boolean adaptiveUnwind;
+
+    @Option(names = {"-aum", "-adaptiveUnwindMax"},
+            description = "The largest unwind bound tried with -au. (default 20)",
+            arity = "0..1")
+    private int adaptiveUnwindMax = 20;
+
+    @Option(names = {"-ppr", "-perProperty"},
+            description = "List the properties of every function with jbmc --show-properties and check each of them "
+                    + "in its own jbmc call with its own timeout.")
+    private boolean perProperty;
+
+    @Option(names = {"-race"},
+            description = "Run a portfolio of jbmc configurations for every function at the same time. The first "
+                    + "configuration that reaches a verdict wins, the others are stopped.")
+    private boolean race;
+
+    @Option(names = {"-pf", "-portfolio"},
+            description = "Options of one jbmc configuration for -race, e.g. -pf=\"--refine-arrays\". "
+                    + "Can be given multiple times and implies -race. (default: plain, --refine-arrays, "
+                    + "--refine-arithmetic, --paths lifo, --max-nondet-tree-depth 2)")
+    private List<String> portfolio = new ArrayList<>();
+
+    @Option(names = {"-ff", "-failFast"},
+            description = "Stop at the first counterexample: running jbmc calls are killed, the remaining functions "
+                    + "are skipped and JJBMC exits with code 10.")
+    private boolean failFast;
+
+    @Option(names = {"-b", "-budget"},
+            description = "Total time in ms for verifying the file. Functions are run in the order of their recorded "
+                    + "runtimes, cheapest first, and get their timeouts from the remaining budget instead of -t.")
+    private long budget;
+
+    @Option(names = {"-ch", "-costHistory"},
+            description = "JSON file in which the runtimes of functions are recorded for -b. "
+                    + "(default: .jjbmc-costs.json next to the verified file)")
+    private @Nullable Path costHistory;
+
+    @Option(names = {"-vc", "-verdictCache"},
+            description = "Folder in which jbmc verdicts are cached. Functions whose translation, contracts and options did not change are not rerun.")
+    private @Nullable Path verdictCache;
+
+    @Option(names = {"-mx", "-metrics"},
+            description = "Folder to which the durations of the translation phases, compilation, jbmc runs and xml parsing "
+                    + "are written at the end of the run, as jjbmc_<file>_<hash of the path>.json and .prom (Prometheus text format).")
+    private @Nullable Path metrics;
+
+    @Option(names = {"-jfr", "-flightRecording"},
+            description = "Record the run with the JDK Flight Recorder into the given file. Besides the JVM data it "
+                    + "contains an event for the translation, the compilation, every jbmc call and every parsed output.")
+    private @Nullable Path jfr;
+
+    @Option(names = {"-wr", "-workspaceRoot"},
+            description = "Folder in which every run gets its own workspace for the translation and the files of jbmc, "
+                    + "e.g. /dev/shm to keep them in memory. (default: tmp next to the verified file)")
+    private @Nullable Path workspaceRoot;
+
+    @Option(names = {"-lac", "-loadAllClasses"},
+            description = "Let jbmc load every class of the workspace. By default the classes a verification function "
+                    + "cannot reach are excluded with --java-no-load-class.")
+    private boolean loadAllClasses;
+
+    @Option(names = {"-sl", "-slice"},
+            description = "Give jbmc for every verification function a workspace of its own, in which the translation "
+                    + "only contains the methods the function calls and the fields these use.")
+    private boolean slice;
+
+    @Option(names = {"-rp", "-report"},
+            description = "Write the results in a machine-readable format to a file, each function as soon as its "
+                    + "result is printed, e.g. -rp jsonl=results.jsonl. Formats: jsonl, junit, sarif. Can be repeated.")
+    private Map<Reporter.Format, Path> reports = new LinkedHashMap<>();
+
     @Parameters(index = "1", arity = "0..1", description = "The method to be verified. If not provided -va is automatically added.")
     @Nullable
     public String functionName = null;
@@ -117,7 +203,12 @@ public class JJBMCOptions {
     @Option(names = {"-pp", "-proofPreconditions"}, description = "Adds additional assertions proving the preconditions " +
             "of called methods while still inlining them. (implies -fim option)")
     public boolean proofPreconditions = false;
+    // the getters fail until the workspace exists, which must not happen in toString or equals
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private @Nullable Path tmpFolder;
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private @Nullable Path tmpFile;
 
     private final boolean isWindows = System.getProperty("os.name")
@@ -127,6 +218,22 @@ public class JJBMCOptions {
 
     public void reset() {
         timeout = 10000;
+        jobs = Runtime.getRuntime().availableProcessors();
+        verdictCache = null;
+        metrics = null;
+        jfr = null;
+        workspaceRoot = null;
+        loadAllClasses = false;
+        slice = false;
+        reports = new LinkedHashMap<>();
+        adaptiveUnwind = false;
+        adaptiveUnwindMax = 20;
+        perProperty = false;
+        failFast = false;
+        budget = 0;
+        costHistory = null;
+        race = false;
+        portfolio = new ArrayList<>();
         timed = false;
         debugMode = false;
         keepTranslation = false;
@@ -145,26 +252,55 @@ public class JJBMCOptions {
 
     public Path getTmpFile() {
         if (tmpFile == null) {
-            var p = getTmpFolder().resolve(fileName.getFileName());
-            setTmpFile(p);
-            return p;
+            return getTmpFolder().resolve(fileName.getFileName());
         }
         return tmpFile;
     }
 
+    /**
+     * The workspace of the run, which is set explicitly or created by {@link Operations#prepareSource()}.
+     */
     public Path getTmpFolder() {
         if (tmpFolder == null) {
-            var p = fileName.resolveSibling("tmp");
-            setTmpFolder(p);
-            return p;
+            throw new IllegalStateException("No workspace was created for " + fileName);
         }
         return tmpFolder;
     }
 
+    public boolean hasTmpFolder() {
+        return tmpFolder != null;
+    }
+
+    public Path getWorkspaceRoot() {
+        if (workspaceRoot == null) {
+            return fileName.resolveSibling("tmp");
+        }
+        return workspaceRoot;
+    }
+
+    public Path getCostHistory() {
+        if (costHistory == null) {
+            return fileName.resolveSibling(".jjbmc-costs.json");
+        }
+        return costHistory;
+    }
+
+    public boolean isRace() {
+        return race || !portfolio.isEmpty();
+    }
+
+    public List<String> getPortfolio() {
+        if (portfolio.isEmpty()) {
+            return DEFAULT_PORTFOLIO;
+        }
+        return portfolio;
+    }
+
     public int getUnwinds() {
         if (unwinds < 0) {
-            info("No unwind argument found. Default to 7.");
-            unwinds = 7;
+            // with -au the loops over the nondeterministic arrays have to be unrolled completely from the start
+            unwinds = adaptiveUnwind ? getMaxArraySize() + 2 : 7;
+            info("No unwind argument found. Default to " + unwinds + ".");
         }
         return unwinds;
     }
@@ -172,8 +308,10 @@ public class JJBMCOptions {
 
     public int getMaxArraySize() {
         if (maxArraySize < 0) {
-            info("No maxArraySize argument found. Default to " + (unwinds - 2) + ".");
-            setMaxArraySize(Math.max(unwinds - 2, 0));
+            // with -au the unwind bound is only where the search starts, the arrays keep the length of a plain run
+            int defaultSize = adaptiveUnwind ? 5 : Math.max(unwinds - 2, 0);
+            info("No maxArraySize argument found. Default to " + defaultSize + ".");
+            setMaxArraySize(defaultSize);
         }
         return maxArraySize;
     }
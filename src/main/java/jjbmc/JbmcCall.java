@@ -0,0 +1,47 @@
+package jjbmc;
+
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+
+/**
+ * A jbmc call started by a {@link JbmcLauncher}: a local {@link JbmcProcess} or a call run by a worker of a
+ * distributed run.
+ *
+ * @param <T> what the output is read into
+ */
+public interface JbmcCall<T> extends AutoCloseable {
+    /**
+     * Waits until jbmc exited and returns what the reader made of its output. Returns null if the output was cut off
+     * by a timeout or cancellation. If the waiting thread is interrupted, jbmc is cancelled.
+     *
+     * @throws IOException if the output could not be read
+     */
+    @Nullable T await() throws InterruptedException, IOException;
+
+    int exitValue();
+
+    /**
+     * What jbmc wrote to stderr, complete after {@link #await()} returned.
+     */
+    String errorOutput();
+
+    /**
+     * The wall-clock time from the start until jbmc exited.
+     */
+    long time();
+
+    /**
+     * The resources used by jbmc and its children, complete after {@link #await()} returned.
+     */
+    ResourceUsage resources();
+
+    boolean isTimedOut();
+
+    boolean isCancelled();
+
+    void cancel();
+
+    @Override
+    void close();
+}
@@ -1,87 +1,37 @@
 package jjbmc;
 
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStreamReader;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
 import static jjbmc.ErrorLogger.*;
 
 public class JbmcFacade {
-    static boolean verifyJBMCVersion(String jbmcBin, boolean isWindows) {
-        try {
-            String[] commands = new String[]{jbmcBin};
-            if (isWindows) {
-                commands = new String[]{"cmd.exe", "/c", jbmcBin};
-            }
-
-            Runtime rt = Runtime.getRuntime();
-
-            Process process = rt.exec(commands);
-
-            BufferedReader stdInput = new BufferedReader(new
-                    InputStreamReader(process.getInputStream()));
-
-            BufferedReader stdError = new BufferedReader(new
-                    InputStreamReader(process.getErrorStream()));
-
-            StringBuilder sb = new StringBuilder();
-            String line = stdInput.readLine();
-            while (line != null) {
-                sb.append(line);
-                sb.append(System.lineSeparator());
-                line = stdInput.readLine();
-            }
-
-            String sb2 = "";
-            String line2 = stdInput.readLine();
-            while (line2 != null) {
-                sb.append(line);
-                sb.append(System.lineSeparator());
-                line = stdError.readLine();
-            }
-
-            //Has to stay down here otherwise not reading the output may block the process
-            process.waitFor();
-
-            String output = sb.toString();
-            String error = sb2;
-            if (output.toLowerCase().contains("jbmc version")) {
-                debug("Found valid jbmc version: " + output);
-                Pattern pattern = Pattern.compile("jbmc version (\\d*)\\.(\\d*)\\.(\\d*)? \\(", Pattern.CASE_INSENSITIVE);
-                Matcher matcher = pattern.matcher(output);
-                boolean matchFound = matcher.find();
-                if (Integer.parseInt(matcher.group(1)) < JJBMCOptions.jbmcMajorVer) {
-                    error("Error validating jbmc binary \"" + jbmcBin + "\"");
-                    error("Found version: " + output);
-                    error("but at least version " + JJBMCOptions.jbmcMajorVer + "." + JJBMCOptions.jbmcMinorVer + " is required.");
-                    error("Either install jbmc and make sure it is included in the path or provide " +
-                            "a jbmc binary manually with the -jbmcBinary option");
-                    error("To install jbmc (as part of cbmc) head to https://github.com/diffblue/cbmc/releases/ ");
-                    return false;
-                } else if (Integer.parseInt(matcher.group(2)) < JJBMCOptions.jbmcMinorVer) {
-                    error("Error validating jbmc binary \"" + jbmcBin + "\"");
-                    error("Found version: " + output);
-                    error("but at least version " + JJBMCOptions.jbmcMajorVer + "." + JJBMCOptions.jbmcMinorVer + " is required.");
-                    error("Either install jbmc and make sure it is included in the path or provide " +
-                            "a jbmc binary manually with the -jbmcBinary option");
-                    error("To install jbmc (as part of cbmc) head to https://github.com/diffblue/cbmc/releases/ ");
-                    return false;
-                }
-                return true;
-            }
-        } catch (IOException | InterruptedException e) {
-            error("Error validating jbmc binary \"" + jbmcBin + "\" (" + e.getMessage() + ")");
+    /**
+     * Checks that the probed jbmc binary has at least the required version. The probe is cached, see
+     * {@link Toolchain}, so this does not spawn jbmc.
+     */
+    static boolean verifyJBMCVersion(Toolchain.Probe jbmc) {
+        if (jbmc.version().equals("unknown")) {
+            error("Error validating jbmc binary \"" + jbmc.path() + "\"");
             error("Either install jbmc and make sure it is included in the path or provide a jbmc binary manually with the -jbmcBinary option");
             error("To install jbmc (as part of cbmc) head to https://github.com/diffblue/cbmc/releases/ ");
-            //e.printStackTrace();
             return false;
         }
-        error("Error validating jbmc binary \"" + jbmcBin + "\"");
-        error("Either install jbmc and make sure it is included in the path or provide a jbmc binary manually with the -jbmcBinary option");
-        error("To install jbmc (as part of cbmc) head to https://github.com/diffblue/cbmc/releases/ ");
+        if (!jbmc.isKnown()) {
+            error("Error validating jbmc binary \"" + jbmc.path() + "\"");
+            error("Either install jbmc and make sure it is included in the path or provide a jbmc binary manually with the -jbmcBinary option");
+            error("To install jbmc (as part of cbmc) head to https://github.com/diffblue/cbmc/releases/ ");
+            return true;
+        }
+        if (jbmc.major() < JJBMCOptions.jbmcMajorVer
+                || jbmc.major() == JJBMCOptions.jbmcMajorVer && jbmc.minor() < JJBMCOptions.jbmcMinorVer) {
+            error("Error validating jbmc binary \"" + jbmc.path() + "\"");
+            error("Found version: " + jbmc.version());
+            error("but at least version " + JJBMCOptions.jbmcMajorVer + "." + JJBMCOptions.jbmcMinorVer + " is required.");
+            error("Either install jbmc and make sure it is included in the path or provide " +
+                    "a jbmc binary manually with the -jbmcBinary option");
+            error("To install jbmc (as part of cbmc) head to https://github.com/diffblue/cbmc/releases/ ");
+            return false;
+        }
+        debug("Found valid jbmc version: " + jbmc.version());
         return true;
     }
 }
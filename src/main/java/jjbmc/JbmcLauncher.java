@@ -0,0 +1,49 @@
+package jjbmc;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Starts the jbmc calls of a run. By default jbmc runs on this machine, see {@link #local}; the coordinator of a
+ * distributed run hands the calls to its workers instead.
+ */
+public interface JbmcLauncher {
+    /**
+     * Starts jbmc with the given arguments in the workspace, which contains the compiled translation.
+     * The call is stopped after {@code timeout} ms.
+     */
+    <T> JbmcCall<T> start(List<String> arguments, Path workspace, int timeout, JbmcProcess.OutputReader<T> reader)
+            throws IOException;
+
+    /**
+     * Called when the run is over and no more calls for the workspace will be started.
+     */
+    default void release(Path workspace) {
+    }
+
+    /**
+     * Runs the given jbmc binary as a local process.
+     */
+    static JbmcLauncher local(String jbmcBin, boolean isWindows) {
+        return new JbmcLauncher() {
+            @Override
+            public <T> JbmcCall<T> start(List<String> arguments, Path workspace, int timeout,
+                                         JbmcProcess.OutputReader<T> reader) throws IOException {
+                return JbmcProcess.start(command(jbmcBin, isWindows, arguments), workspace, timeout, reader);
+            }
+        };
+    }
+
+    static String[] command(String jbmcBin, boolean isWindows, List<String> arguments) {
+        var command = new ArrayList<String>();
+        if (isWindows) {
+            command.add("cmd.exe");
+            command.add("/c");
+        }
+        command.add(jbmcBin);
+        command.addAll(arguments);
+        return command.toArray(new String[0]);
+    }
+}
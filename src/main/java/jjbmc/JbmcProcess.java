@@ -0,0 +1,180 @@
+package jjbmc;
+
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A supervised jbmc process. Its stdout and stderr are drained by virtual threads from the start, so jbmc never
+ * blocks on a full pipe, and stopping it (on timeout, cancellation or interruption of the waiting thread)
+ * kills the whole process tree, e.g. jbmc started through {@code cmd.exe} or its solver.
+ * <p>
+ * Stdout is handed to an {@link OutputReader} while jbmc is still running, so its output does not have to be
+ * buffered as a whole. While jbmc runs, the CPU time and memory of its process tree are sampled, see
+ * {@link #resources()}.
+ *
+ * @param <T> what the output is read into
+ */
+public class JbmcProcess<T> implements JbmcCall<T> {
+    private final Process process;
+    private final CompletableFuture<T> stdout;
+    private final CompletableFuture<String> stderr;
+    private final ResourceSampler sampler;
+    private final long start = System.currentTimeMillis();
+    private long end;
+    private volatile boolean timedOut;
+    private volatile boolean cancelled;
+
+    /**
+     * How often the resources of a running jbmc are sampled, in ms.
+     */
+    private static final long SAMPLE_INTERVAL = 50;
+
+    @FunctionalInterface
+    public interface OutputReader<T> {
+        T read(InputStream stdout) throws Exception;
+    }
+
+    private JbmcProcess(Process process, OutputReader<T> reader) {
+        this.process = process;
+        this.stdout = drain(process.getInputStream(), reader);
+        this.stderr = drain(process.getErrorStream(), JbmcProcess::readString).exceptionally(e -> "");
+        this.sampler = new ResourceSampler(process.toHandle());
+        Thread.ofVirtual().name("jbmc-sampler").start(() -> {
+            try {
+                while (process.isAlive()) {
+                    sampler.sample();
+                    Thread.sleep(SAMPLE_INTERVAL);
+                }
+            } catch (InterruptedException e) {
+                // nothing to sample anymore
+            }
+        });
+    }
+
+    /**
+     * Starts the command in the given folder and collects its output in a string.
+     * The process tree is killed after {@code timeout} ms.
+     */
+    public static JbmcProcess<String> start(String[] command, Path workingDirectory, int timeout) throws IOException {
+        return start(command, workingDirectory, timeout, JbmcProcess::readString);
+    }
+
+    /**
+     * Starts the command in the given folder and reads its output with the given reader.
+     * The process tree is killed after {@code timeout} ms.
+     */
+    public static <T> JbmcProcess<T> start(String[] command, Path workingDirectory, int timeout, OutputReader<T> reader)
+            throws IOException {
+        var jbmc = new JbmcProcess<>(new ProcessBuilder(command).directory(workingDirectory.toFile()).start(), reader);
+        CompletableFuture.delayedExecutor(timeout, TimeUnit.MILLISECONDS).execute(() -> {
+            if (jbmc.process.isAlive()) {
+                jbmc.timedOut = true;
+                killTree(jbmc.process.toHandle());
+            }
+        });
+        return jbmc;
+    }
+
+    private static String readString(InputStream in) throws IOException {
+        return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    }
+
+    private static <R> CompletableFuture<R> drain(InputStream in, OutputReader<R> reader) {
+        var content = new CompletableFuture<R>();
+        Thread.ofVirtual().name("jbmc-drain").start(() -> {
+            try (in) {
+                try {
+                    content.complete(reader.read(in));
+                } catch (Throwable e) {
+                    content.completeExceptionally(e);
+                }
+                // whatever the reader did not consume must still be read, or jbmc blocks on the full pipe
+                in.transferTo(OutputStream.nullOutputStream());
+            } catch (IOException e) {
+                // the process is gone
+            }
+        });
+        return content;
+    }
+
+    @Override
+    public @Nullable T await() throws InterruptedException, IOException {
+        try {
+            process.waitFor();
+            end = System.currentTimeMillis();
+            stderr.get();
+            return stdout.get();
+        } catch (InterruptedException e) {
+            cancel();
+            throw e;
+        } catch (ExecutionException e) {
+            if (timedOut || cancelled) {
+                return null;
+            }
+            throw new IOException("Could not read the output of jbmc: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    @Override
+    public int exitValue() {
+        return process.exitValue();
+    }
+
+    @Override
+    public String errorOutput() {
+        return stderr.getNow("");
+    }
+
+    @Override
+    public long time() {
+        return end - start;
+    }
+
+    /**
+     * The resources used by jbmc and its children as far as they were sampled, complete after {@link #await()}
+     * returned.
+     */
+    @Override
+    public ResourceUsage resources() {
+        return sampler.usage(time());
+    }
+
+    @Override
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public void cancel() {
+        cancelled = true;
+        killTree(process.toHandle());
+    }
+
+    @Override
+    public void close() {
+        if (process.isAlive()) {
+            killTree(process.toHandle());
+        }
+    }
+
+    /**
+     * Kills the descendants before the process itself, as they cannot be found anymore once they are orphaned.
+     */
+    static void killTree(ProcessHandle handle) {
+        handle.descendants().forEach(ProcessHandle::destroyForcibly);
+        handle.destroyForcibly();
+    }
+}
@@ -0,0 +1,113 @@
+package jjbmc;
+
+import jdk.jfr.Category;
+import jdk.jfr.Configuration;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.StackTrace;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+
+import static jjbmc.ErrorLogger.*;
+
+/**
+ * JDK Flight Recorder events for the phases of a verification run, so a recording of a slow run shows which phase
+ * and which function took the time, next to the GC and allocation data of the JVM. The events are recorded by any
+ * running recording, e.g. one started with {@code -XX:StartFlightRecording} or with {@link #startRecording()}.
+ */
+public final class JfrEvents {
+    private JfrEvents() {
+    }
+
+    @Category("JJBMC")
+    @StackTrace(false)
+    public abstract static class PipelineEvent extends Event {
+        @Label("File")
+        public @Nullable String file;
+
+        @Label("Function")
+        public @Nullable String function;
+
+        @Label("Unwind")
+        public int unwind;
+
+        @Label("Max Array Size")
+        public int maxArraySize;
+
+        @Label("Output Size")
+        @DataAmount
+        public long outputSize;
+
+        @Label("Verdict")
+        public @Nullable String verdict;
+
+        /**
+         * Fills in the file and the bounds of the run and starts the timing of the event.
+         */
+        public void begin(JJBMCOptions options, @Nullable String function) {
+            this.file = String.valueOf(options.getFileName());
+            this.function = function;
+            this.unwind = options.getUnwinds();
+            this.maxArraySize = options.getMaxArraySize();
+            begin();
+        }
+    }
+
+    @Name("jjbmc.Translation")
+    @Label("Translation")
+    @Description("Parsing and translating the JML annotated file into Java; the output size is that of the translation")
+    public static class Translation extends PipelineEvent {
+    }
+
+    @Name("jjbmc.Compilation")
+    @Label("Compilation")
+    @Description("Compiling the translation for jbmc")
+    public static class Compilation extends PipelineEvent {
+    }
+
+    @Name("jjbmc.JbmcInvocation")
+    @Label("JBMC Invocation")
+    @Description("One jbmc call for a function; the output size is that of jbmc's xml output")
+    public static class JbmcInvocation extends PipelineEvent {
+    }
+
+    @Name("jjbmc.TraceParsing")
+    @Label("Trace Parsing")
+    @Description("Parsing the xml output of jbmc and reconstructing the traces")
+    public static class TraceParsing extends PipelineEvent {
+    }
+
+    /**
+     * Starts a recording with the default settings of the JDK, which include the events of JJBMC.
+     */
+    public static Recording startRecording() throws IOException {
+        try {
+            var recording = new Recording(Configuration.getConfiguration("default"));
+            recording.setName("JJBMC");
+            recording.start();
+            return recording;
+        } catch (ParseException e) {
+            throw new IOException("Could not read the default JFR configuration", e);
+        }
+    }
+
+    /**
+     * Stops the recording and writes it to the file.
+     */
+    public static void stopRecording(Recording recording, Path file) {
+        try (recording) {
+            recording.stop();
+            recording.dump(file);
+            info("Flight recording written to " + file);
+        } catch (IOException e) {
+            warn("Could not write the flight recording to " + file + ": " + e.getMessage());
+        }
+    }
+}
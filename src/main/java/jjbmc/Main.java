@@ -1,7 +1,11 @@
 package jjbmc;
 
+import jjbmc.distributed.Worker;
+import jjbmc.server.VerificationServer;
 import picocli.CommandLine;
 
+import java.util.Arrays;
+
 /**
  * The entry point for the program. Initializing piccoli cli and setting costum print streams
  *
@@ -10,12 +14,26 @@ import picocli.CommandLine;
  */
 public class Main {
     public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("batch")) {
+            System.exit(BatchOperations.run(Arrays.copyOfRange(args, 1, args.length)));
+        }
+        if (args.length > 0 && args[0].equals("worker")) {
+            System.exit(Worker.run(Arrays.copyOfRange(args, 1, args.length)));
+        }
+        if (args.length > 0 && args[0].equals("server")) {
+            System.exit(VerificationServer.run(Arrays.copyOfRange(args, 1, args.length)));
+        }
+        JJBMCOptions cli = parseOptions(args);
+        Operations ops = new Operations(cli);
+        System.exit(ops.call());
+    }
+
+    public static JJBMCOptions parseOptions(String... args) {
         JJBMCOptions cli = new JJBMCOptions();
         CommandLine cmd = new CommandLine(cli)
                 .setCaseInsensitiveEnumValuesAllowed(true)
                 .setColorScheme(CommandLine.Help.defaultColorScheme(CommandLine.Help.Ansi.AUTO));
         cmd.parseArgs(args);
-        Operations ops = new Operations(cli);
-        System.exit(ops.call());
+        return cli;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,184 @@
+package jjbmc;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Durations of the phases of a run and the number of jbmc calls, tagged with the verified file and function.
+ * File-level phases (parsing, translation, compilation) have an empty function. At the end of a run the metrics are
+ * written as JSON and in the Prometheus text format, e.g. for the textfile collector of the node exporter.
+ */
+public class Metrics {
+    public static final String PARSE = "parse";
+    public static final String NORMALIZE = "normalize_binary_expressions";
+    public static final String CREATE_CONTRACTS = "create_method_contracts";
+    public static final String EMBED_CONTRACTS = "embed_contracts";
+    public static final String PRETTY_PRINT = "pretty_print";
+    public static final String COMPILE = "compile";
+    public static final String JBMC = "jbmc";
+    public static final String XML_PARSE = "xml_parse";
+    public static final String TRACE = "trace_reconstruction";
+
+    /**
+     * Upper bounds of the histogram buckets in seconds, from translating a small file up to long jbmc runs.
+     */
+    private static final double[] BUCKETS = {0.01, 0.05, 0.1, 0.5, 1, 5, 10, 30, 60, 300, 1800};
+
+    private record Key(String name, String file, String function) {
+    }
+
+    private static final class Histogram {
+        private final long[] buckets = new long[BUCKETS.length];
+        private long count;
+        private long sum;
+        private long max;
+
+        synchronized void add(long nanos) {
+            double seconds = nanos / 1e9;
+            for (int i = 0; i < BUCKETS.length; i++) {
+                if (seconds <= BUCKETS[i]) {
+                    buckets[i]++;
+                }
+            }
+            count++;
+            sum += nanos;
+            max = Math.max(max, nanos);
+        }
+    }
+
+    private final Map<Key, Histogram> phases = new ConcurrentHashMap<>();
+    /**
+     * jbmc calls by status, e.g. DONE, TIMEOUT, ERROR or CACHED.
+     */
+    private final Map<Key, LongAdder> jbmcCalls = new ConcurrentHashMap<>();
+
+    public void record(String phase, String file, String function, long nanos) {
+        phases.computeIfAbsent(new Key(phase, file, function), k -> new Histogram()).add(nanos);
+    }
+
+    /**
+     * Records the time from {@code start}, a value of {@link System#nanoTime()}, until now.
+     *
+     * @return the elapsed time in ms
+     */
+    public long recordSince(String phase, String file, String function, long start) {
+        long nanos = System.nanoTime() - start;
+        record(phase, file, function, nanos);
+        return nanos / 1_000_000;
+    }
+
+    public void countJbmcCall(String status, String file, String function) {
+        jbmcCalls.computeIfAbsent(new Key(status, file, function), k -> new LongAdder()).increment();
+    }
+
+    public boolean isEmpty() {
+        return phases.isEmpty() && jbmcCalls.isEmpty();
+    }
+
+    /**
+     * Writes {@code <name>.json} and {@code <name>.prom} to the folder. The files are replaced atomically, so a
+     * collector never reads a half written file.
+     */
+    public void write(Path folder, String name) throws IOException {
+        Files.createDirectories(folder);
+        writeAtomically(folder.resolve(name + ".json"), new GsonBuilder().setPrettyPrinting().create().toJson(toJson()));
+        writeAtomically(folder.resolve(name + ".prom"), toPrometheus());
+    }
+
+    private static void writeAtomically(Path file, String content) throws IOException {
+        var tmp = Files.createTempFile(file.getParent(), "." + file.getFileName(), ".tmp");
+        Files.writeString(tmp, content);
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public JsonObject toJson() {
+        var json = new JsonObject();
+        var phaseArray = new JsonArray();
+        for (var entry : sorted(phases)) {
+            var h = entry.getValue();
+            var o = labels(entry.getKey(), "phase");
+            synchronized (h) {
+                o.addProperty("count", h.count);
+                o.addProperty("sumMs", h.sum / 1_000_000);
+                o.addProperty("maxMs", h.max / 1_000_000);
+                var buckets = new JsonObject();
+                for (int i = 0; i < BUCKETS.length; i++) {
+                    buckets.addProperty(String.valueOf(BUCKETS[i]), h.buckets[i]);
+                }
+                o.add("buckets", buckets);
+            }
+            phaseArray.add(o);
+        }
+        json.add("phases", phaseArray);
+        var callArray = new JsonArray();
+        for (var entry : sorted(jbmcCalls)) {
+            var o = labels(entry.getKey(), "status");
+            o.addProperty("count", entry.getValue().sum());
+            callArray.add(o);
+        }
+        json.add("jbmcCalls", callArray);
+        return json;
+    }
+
+    private static JsonObject labels(Key key, String nameLabel) {
+        var o = new JsonObject();
+        o.addProperty(nameLabel, key.name());
+        o.addProperty("file", key.file());
+        o.addProperty("function", key.function());
+        return o;
+    }
+
+    public String toPrometheus() {
+        var sb = new StringBuilder();
+        sb.append("# HELP jjbmc_phase_duration_seconds Duration of the phases of JJBMC runs.\n");
+        sb.append("# TYPE jjbmc_phase_duration_seconds histogram\n");
+        for (var entry : sorted(phases)) {
+            var h = entry.getValue();
+            String labels = prometheusLabels(entry.getKey(), "phase");
+            synchronized (h) {
+                for (int i = 0; i < BUCKETS.length; i++) {
+                    sb.append("jjbmc_phase_duration_seconds_bucket{").append(labels).append(",le=\"").append(BUCKETS[i])
+                            .append("\"} ").append(h.buckets[i]).append('\n');
+                }
+                sb.append("jjbmc_phase_duration_seconds_bucket{").append(labels).append(",le=\"+Inf\"} ").append(h.count).append('\n');
+                sb.append("jjbmc_phase_duration_seconds_sum{").append(labels).append("} ").append(h.sum / 1e9).append('\n');
+                sb.append("jjbmc_phase_duration_seconds_count{").append(labels).append("} ").append(h.count).append('\n');
+            }
+        }
+        sb.append("# HELP jjbmc_jbmc_calls_total Number of jbmc calls by status.\n");
+        sb.append("# TYPE jjbmc_jbmc_calls_total counter\n");
+        for (var entry : sorted(jbmcCalls)) {
+            sb.append("jjbmc_jbmc_calls_total{").append(prometheusLabels(entry.getKey(), "status")).append("} ")
+                    .append(entry.getValue().sum()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static String prometheusLabels(Key key, String nameLabel) {
+        return nameLabel + "=\"" + escape(key.name()) + "\",file=\"" + escape(key.file())
+                + "\",function=\"" + escape(key.function()) + "\"";
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static <V> List<Map.Entry<Key, V>> sorted(Map<Key, V> map) {
+        return map.entrySet().stream()
+                .sorted(Comparator.comparing((Map.Entry<Key, V> it) -> it.getKey().file())
+                        .thenComparing(it -> it.getKey().function())
+                        .thenComparing(it -> it.getKey().name()))
+                .toList();
+    }
+}
@@ -1,21 +1,57 @@
 package jjbmc;
 
+import com.github.javaparser.ast.Node;
 import com.github.javaparser.ast.jml.clauses.JmlContract;
+import com.github.javaparser.ast.stmt.AssertStmt;
+import com.github.javaparser.ast.stmt.BreakStmt;
+import com.github.javaparser.ast.stmt.ContinueStmt;
+import com.github.javaparser.ast.stmt.DoStmt;
+import com.github.javaparser.ast.stmt.ExplicitConstructorInvocationStmt;
+import com.github.javaparser.ast.stmt.ExpressionStmt;
+import com.github.javaparser.ast.stmt.ForEachStmt;
+import com.github.javaparser.ast.stmt.ForStmt;
+import com.github.javaparser.ast.stmt.IfStmt;
+import com.github.javaparser.ast.stmt.LabeledStmt;
+import com.github.javaparser.ast.stmt.LocalClassDeclarationStmt;
+import com.github.javaparser.ast.stmt.LocalRecordDeclarationStmt;
+import com.github.javaparser.ast.stmt.ReturnStmt;
+import com.github.javaparser.ast.stmt.Statement;
+import com.github.javaparser.ast.stmt.SwitchStmt;
+import com.github.javaparser.ast.stmt.SynchronizedStmt;
+import com.github.javaparser.ast.stmt.ThrowStmt;
+import com.github.javaparser.ast.stmt.TryStmt;
+import com.github.javaparser.ast.stmt.WhileStmt;
+import com.github.javaparser.ast.stmt.YieldStmt;
 import com.github.javaparser.printer.DefaultPrettyPrinterVisitor;
 import com.github.javaparser.printer.SourcePrinter;
 import com.github.javaparser.printer.configuration.PrinterConfiguration;
+import jjbmc.trace.TraceInformation;
+import org.jspecify.annotations.Nullable;
 
 /**
  * Fixes an error in JavaParser pretty printing of JML-contracts
  * Delete on newer versions.
+ * <p>
+ * If given a {@link TraceInformation}, it also records for every printed statement the line of the original source
+ * it stems from, so that failures and traces of jbmc can be reported in lines of the verified file. Generated
+ * statements take the line of the first of their parts that was parsed from the source, e.g. the expression of an
+ * ensures clause.
  */
 public class MyPPrintVisitor extends DefaultPrettyPrinterVisitor {
+    private final @Nullable TraceInformation lines;
+
     public MyPPrintVisitor(PrinterConfiguration configuration) {
+        this(configuration, (TraceInformation) null);
+    }
+
+    public MyPPrintVisitor(PrinterConfiguration configuration, @Nullable TraceInformation lines) {
         super(configuration);
+        this.lines = lines;
     }
 
     public MyPPrintVisitor(PrinterConfiguration configuration, SourcePrinter printer) {
         super(configuration, printer);
+        this.lines = null;
     }
 
     @Override
@@ -24,4 +60,118 @@ public class MyPPrintVisitor extends DefaultPrettyPrinterVisitor {
         super.visit(n, arg);
         printer.print("*/");
     }
+
+    @Override
+    public void visit(AssertStmt n, Void arg) {
+        mapped(n, () -> super.visit(n, arg));
+    }
+
+    @Override
+    public void visit(BreakStmt n, Void arg) {
+        mapped(n, () -> super.visit(n, arg));
+    }
+
+    @Override
+    public void visit(ContinueStmt n, Void arg) {
+        mapped(n, () -> super.visit(n, arg));
+    }
+
+    @Override
+    public void visit(DoStmt n, Void arg) {
+        mapped(n, () -> super.visit(n, arg));
+    }
+
+    @Override
+    public void visit(ExplicitConstructorInvocationStmt n, Void arg) {
+        mapped(n, () -> super.visit(n, arg));
+    }
+
+    @Override
+    public void visit(ExpressionStmt n, Void arg) {
+        mapped(n, () -> super.visit(n, arg));
+    }
+
+    @Override
+    public void visit(ForEachStmt n, Void arg) {
+        mapped(n, () -> super.visit(n, arg));
+    }
+
+    @Override
+    public void visit(ForStmt n, Void arg) {
+        mapped(n, () -> super.visit(n, arg));
+    }
+
+    @Override
+    public void visit(IfStmt n, Void arg) {
+        mapped(n, () -> super.visit(n, arg));
+    }
+
+    @Override
+    public void visit(LabeledStmt n, Void arg) {
+        mapped(n, () -> super.visit(n, arg));
+    }
+
+    @Override
+    public void visit(LocalClassDeclarationStmt n, Void arg) {
+        mapped(n, () -> super.visit(n, arg));
+    }
+
+    @Override
+    public void visit(LocalRecordDeclarationStmt n, Void arg) {
+        mapped(n, () -> super.visit(n, arg));
+    }
+
+    @Override
+    public void visit(ReturnStmt n, Void arg) {
+        mapped(n, () -> super.visit(n, arg));
+    }
+
+    @Override
+    public void visit(SwitchStmt n, Void arg) {
+        mapped(n, () -> super.visit(n, arg));
+    }
+
+    @Override
+    public void visit(SynchronizedStmt n, Void arg) {
+        mapped(n, () -> super.visit(n, arg));
+    }
+
+    @Override
+    public void visit(ThrowStmt n, Void arg) {
+        mapped(n, () -> super.visit(n, arg));
+    }
+
+    @Override
+    public void visit(TryStmt n, Void arg) {
+        mapped(n, () -> super.visit(n, arg));
+    }
+
+    @Override
+    public void visit(WhileStmt n, Void arg) {
+        mapped(n, () -> super.visit(n, arg));
+    }
+
+    @Override
+    public void visit(YieldStmt n, Void arg) {
+        mapped(n, () -> super.visit(n, arg));
+    }
+
+    /**
+     * Prints the statement and maps its printed lines to its original line. The statements inside a block are
+     * printed first, so they keep their own lines and the block only fills the lines in between, e.g. its head.
+     * Every kind of statement but blocks, which have no line of their own, goes through here.
+     */
+    private void mapped(Statement statement, Runnable print) {
+        int from = printer.getCursor().line;
+        print.run();
+        var lines = this.lines;
+        if (lines == null) {
+            return;
+        }
+        statement.findFirst(Node.class, it -> it.getRange().isPresent()).flatMap(Node::getRange).ifPresent(range -> {
+            for (int line = from; line <= printer.getCursor().line; line++) {
+                lines.addLineEquality(line, range.begin.line);
+            }
+        });
+    }
 }
@@ -2,40 +2,103 @@ package jjbmc;
 
 import com.github.javaparser.JavaParser;
 import com.github.javaparser.ParseResult;
-import com.github.javaparser.ParserConfiguration;
 import com.github.javaparser.ast.CompilationUnit;
 import com.github.javaparser.ast.nodeTypes.NodeWithName;
-import com.github.javaparser.symbolsolver.JavaSymbolSolver;
-import com.github.javaparser.symbolsolver.resolution.typesolvers.TypeSolverBuilder;
-import com.google.common.collect.ImmutableList;
 import jjbmc.jml2java.Jml2JavaFacade;
+import jjbmc.report.Reporter;
 import jjbmc.trace.TraceParser;
 import lombok.Getter;
-import lombok.RequiredArgsConstructor;
+import lombok.Setter;
 import org.jspecify.annotations.Nullable;
 
-import javax.tools.DiagnosticCollector;
-import javax.tools.JavaCompiler;
-import javax.tools.JavaFileObject;
-import javax.tools.ToolProvider;
 import java.io.*;
-import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import javax.xml.stream.XMLStreamException;
 
 import static jjbmc.ErrorLogger.*;
 
-@RequiredArgsConstructor
 @Getter
 public class Operations implements Callable<Integer> {
+    /**
+     * The exit code if -failFast stopped at a counterexample, the same jbmc uses for failed properties.
+     */
+    public static final int EXIT_COUNTEREXAMPLE = 10;
+
     private final JJBMCOptions options;
-    @Nullable
-    private Process jbmcProcess;
+    private final VerificationSession session;
+    private VerificationContext context;
     private List<String> jbmcOptions = new LinkedList<>();
+    private final List<VerificationListener> listeners = new ArrayList<>();
+    private @Nullable VerdictCache verdictCache;
+    private @Nullable BudgetScheduler scheduler;
+    private @Nullable SupportLibrary supportLibrary;
+    /**
+     * Where jbmc runs, on this machine if not set.
+     */
+    @Setter
+    private @Nullable JbmcLauncher launcher;
+    /**
+     * The jbmc calls of this run that are still running.
+     */
+    private final Set<JbmcCall<?>> running = ConcurrentHashMap.newKeySet();
+    /**
+     * The {@code --java-no-load-class} options of the verification methods, by class and method name.
+     */
+    private final Map<String, List<String>> classLoadingOptions = new ConcurrentHashMap<>();
+    /**
+     * The parsed library files, null if one of them could not be parsed.
+     */
+    private @Nullable List<CompilationUnit> libraryUnits;
+    private boolean libraryParsed;
+    /**
+     * The class files of {@code CProver} and the library files if they were compiled without the translation.
+     */
+    private @Nullable Map<String, byte[]> supportClasses;
+    /**
+     * With -slice: the workspaces of the verification methods, by class and method name.
+     */
+    private final Map<String, Path> sliceWorkspaces = new ConcurrentHashMap<>();
+    /**
+     * Limits the number of runs that translate and compile at the same time, e.g. the files of a distributed batch.
+     */
+    @Setter
+    private @Nullable Semaphore translations;
+    private volatile boolean cancelled;
+    /**
+     * With -failFast: the function in which the first counterexample was found.
+     */
+    private volatile @Nullable String firstCounterexample;
+
+    /**
+     * jbmc options that shrink the input space, their SUCCESS is not a verdict in a race.
+     */
+    private static final Set<String> INPUT_RESTRICTIONS = Set.of("--max-nondet-tree-depth", "--max-nondet-array-length",
+            "--max-nondet-string-length", "--java-assume-inputs-non-null", "--java-assume-inputs-interval",
+            "--java-assume-inputs-integral", "--depth");
+
+    private static final Pattern PACKAGE_DECLARATION = Pattern.compile("^\\s*package\\s+([\\w.]+)\\s*;", Pattern.MULTILINE);
+
+    public Operations(JJBMCOptions options) {
+        this(options, VerificationSession.getDefault());
+    }
+
+    public Operations(JJBMCOptions options, VerificationSession session) {
+        this.options = options;
+        this.session = session;
+        this.context = new VerificationContext(options);
+    }
 
     public static CompilationUnit translate(File file, JJBMCOptions options) throws Exception {
         return translate(options, file.toPath());
@@ -45,21 +108,24 @@ public class Operations implements Callable<Integer> {
     private boolean didCleanUp = false;
 
     public static CompilationUnit translate(JJBMCOptions options, Path fileName) throws Exception {
-        ParserConfiguration config = new ParserConfiguration();
-        config.setJmlKeys(ImmutableList.of(ImmutableList.of("openjml")));
-        config.setProcessJml(true);
-        config.setSymbolResolver(new JavaSymbolSolver(
-                new TypeSolverBuilder()
-                        .withSourceCode(options.getTmpFolder())
-                        .withCurrentJRE()
-                        .build()));
-        JavaParser parser = new JavaParser(config);
+        return translate(new VerificationContext(options), fileName);
+    }
+
+    public static CompilationUnit translate(VerificationContext context, Path fileName) throws Exception {
+        return translate(context, fileName, VerificationSession.getDefault());
+    }
+
+    public static CompilationUnit translate(VerificationContext context, Path fileName, VerificationSession session) throws Exception {
+        var options = context.getOptions();
+        JavaParser parser = new JavaParser(session.createParserConfiguration(options.getTmpFolder()));
 
         List<CompilationUnit> compilationUnits = new ArrayList<>(32);
+        long start = System.nanoTime();
         ParseResult<CompilationUnit> result = parser.parse(fileName);
+        context.getMetrics().recordSince(Metrics.PARSE, context.fileLabel(), "", start);
         if (result.isSuccessful()) {
             var compilationUnit = result.getResult().get();
-            return rewriteAssert(compilationUnit, options);
+            return rewriteAssert(compilationUnit, context);
         } else {
             result.getProblems().forEach(System.out::println);
             final var first = result.getProblems().get(0);
@@ -71,15 +137,6 @@ public class Operations implements Callable<Integer> {
         Files.copy(fileName, tmpFile, StandardCopyOption.REPLACE_EXISTING);
     }
 
-    private static void createCProverFolder(Path folder) throws IOException {
-        var dir = folder.resolve("org/cprover");
-        debug("Copying CProver.java to %s", dir.toAbsolutePath());
-        Files.createDirectories(dir);
-        try (InputStream is = JJBMCOptions.class.getResourceAsStream("/cli/CProver.java")) {
-            Files.copy(Objects.requireNonNull(is), dir.resolve("CProver.java"));
-        }
-    }
-
     public void translateAndRunJBMC(Path file, String functionName) throws Exception {
         options.functionName = functionName;
         options.setFileName(file);
@@ -99,6 +156,10 @@ public class Operations implements Callable<Integer> {
             throw new FileNotFoundException("Could not find file " + file);
         }
 
+        if (!options.hasTmpFolder()) {
+            options.setTmpFolder(Workspaces.create(options.getWorkspaceRoot(),
+                    file.getFileName().toString().replace(".java", "")));
+        }
         var tmpFile = options.getTmpFile();
 
         try {
@@ -113,12 +174,19 @@ public class Operations implements Callable<Integer> {
             Files.deleteIfExists(tmpClassFile);
              */
 
-            copyLibraryFiles(options.getTmpFolder());
-            createCProverFolder(options.getTmpFolder());
+            // CProver and the library files are the same for many runs, they are only linked into the workspace
+            supportLibrary = SupportLibrary.create(options.getTmpFolder().toAbsolutePath().getParent(), supportSources(), session);
+            supportLibrary.linkInto(options.getTmpFolder());
             copySubjectOfVerification(file, tmpFile);
+            session.getTypeSolvers().invalidate(options.getTmpFolder(), tmpFile);
 
             long start = System.currentTimeMillis();
-            var translation = translate(options, tmpFile);
+            var event = new JfrEvents.Translation();
+            event.begin(options, null);
+            var metrics = context.getMetrics();
+            context = new VerificationContext(options, metrics);
+            var translation = translate(context, tmpFile, session);
+            context.setTranslation(translation);
             long finish = System.currentTimeMillis();
             debug("Translation.Translation took: " + (finish - start) + "ms");
 
@@ -129,51 +197,154 @@ public class Operations implements Callable<Integer> {
             var packageFolder = options.getTmpFolder().resolve(packageName);
             Files.createDirectories(packageFolder);
             options.setTmpFile(packageFolder.resolve(tmpFile.getFileName()));
-            var content = Jml2JavaFacade.pprint(translation);
+            long pprintStart = System.nanoTime();
+            var content = Jml2JavaFacade.pprint(translation, context.getTraceInformation());
+            metrics.recordSince(Metrics.PRETTY_PRINT, context.fileLabel(), "", pprintStart);
+            event.outputSize = content.length();
+            event.commit();
+            context.setTranslationSource(content);
             Files.writeString(options.getTmpFile(), content, StandardOpenOption.CREATE);
-        } finally {
+            session.getTypeSolvers().invalidate(options.getTmpFolder(), options.getTmpFile());
+        } catch (Exception e) {
+            // keep the workspace for inspection
             options.keepTranslation = true;
-            cleanUp();
+            throw e;
         }
     }
 
     public void compile() throws Exception {
+        long start = System.nanoTime();
+        var event = new JfrEvents.Compilation();
+        event.begin(options, null);
         if (!compileWithApi()) {
             compileWithJavac();
         }
+        context.getMetrics().recordSince(Metrics.COMPILE, context.fileLabel(), "", start);
+        event.commit();
     }
 
-    private boolean compileWithApi() throws IOException {
-        var javac = ToolProvider.getSystemJavaCompiler();
-        if (javac == null) return false;
-
-        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
-        var fileManager = javac.getStandardFileManager(diagnostics, Locale.ENGLISH, Charset.defaultCharset());
-
-        //StringWriter output = new StringWriter();
-        //List<String> classes = new ArrayList<>();
-        try (var s = Files.walk(options.getTmpFolder())) {
-            var files = s.filter(f -> !Files.isDirectory(f))
-                    .filter(f -> f.getFileName().toString().endsWith(".java"))
-                    .toList();
+    /**
+     * Compiles the printed translation in memory. {@code CProver} and the library files are compiled once per session,
+     * and only the class files of the translation are written to the workspace for jbmc.
+     */
+    private boolean compileWithApi() throws Exception {
+        var javac = session.getJavaCompiler();
+        var translation = context.getTranslation();
+        var source = context.getTranslationSource();
+        if (javac == null || translation == null || source == null) return false;
+
+        long start = System.currentTimeMillis();
+        var translationSource = Map.of(translationClassName(translation), source);
+
+        var supportSources = new LinkedHashMap<String, String>();
+        supportSources().forEach(it -> supportSources.put(it.binaryName(), it.content()));
+        // cached by the session, the class files are already linked into the workspace by the support library
+        var supportClasses = session.compileSupportClasses(supportSources);
+        this.supportClasses = supportClasses;
+        InMemoryCompiler.Result result;
+        if (supportClasses != null) {
+            result = new InMemoryCompiler(javac).compile(translationSource, supportClasses);
+        } else {
+            // library files may depend on the file under verification, so they have to be compiled together
+            debug("Could not compile the support classes on their own. Compiling everything together.");
+            var sources = new LinkedHashMap<>(supportSources);
+            sources.putAll(translationSource);
+            result = new InMemoryCompiler(javac).compile(sources, Map.of());
+        }
+        long stop = System.currentTimeMillis();
+        info("Compilation took %d ms using the internal API", stop - start);
 
-            Iterable<? extends JavaFileObject> compilationUnits =
-                    fileManager.getJavaFileObjects(files.toArray(new Path[0]));
+        for (var diagnostic : result.diagnostics()) {
+            info("%s", diagnostic);
+        }
+        if (!result.success()) {
+            options.keepTranslation = true;
+            throw new Exception("Compilation failed.");
+        }
+        InMemoryCompiler.writeClasses(result.classes(), options.getTmpFolder());
+        return true;
+    }
 
-            JavaCompiler.CompilationTask task = javac.getTask(new PrintWriter(System.out),
-                    fileManager, diagnostics, List.of("-g"), List.of(), compilationUnits);
+    private String translationClassName(CompilationUnit translation) {
+        String packageName = translation.getPackageDeclaration().map(NodeWithName::getNameAsString).orElse("");
+        String className = options.getTmpFile().getFileName().toString().replace(".java", "");
+        return packageName.isEmpty() ? className : packageName + "." + className;
+    }
 
-            long start = System.currentTimeMillis();
-            var b = task.call();
-            long stop = System.currentTimeMillis();
+    /**
+     * The workspace jbmc runs the function in: with -slice the one with the slice of the translation for the
+     * function, created on first use, otherwise the workspace of the file.
+     */
+    private Path workspace(String functionName) {
+        var target = target(functionName);
+        if (!options.isSlice() || target == null || supportClasses == null) {
+            return options.getTmpFolder();
+        }
+        return sliceWorkspaces.computeIfAbsent(target.className() + "." + target.methodName(), key -> slice(key, target));
+    }
 
-            info("Compilation took %d ms using the internal API", stop - start);
+    /**
+     * Compiles the slice of the translation for the target into a workspace below the one of the file. If the slice
+     * is not smaller or does not compile, jbmc gets the whole translation.
+     */
+    private Path slice(String key, VerificationTarget target) {
+        var javac = session.getJavaCompiler();
+        var translation = context.getTranslation();
+        var source = context.getTranslationSource();
+        var classPath = supportClasses;
+        var library = supportLibrary;
+        if (javac == null || translation == null || source == null || classPath == null || library == null) {
+            return options.getTmpFolder();
+        }
+        try {
+            long start = System.nanoTime();
+            var sliced = TranslationSlicer.slice(source, target.methodName());
+            if (sliced == null || sliced.equals(source)) {
+                return options.getTmpFolder();
+            }
+            var result = new InMemoryCompiler(javac).compile(Map.of(translationClassName(translation), sliced), classPath);
+            if (!result.success()) {
+                debug("The slice for %s does not compile, jbmc gets the whole translation: %s", key, result.diagnostics());
+                return options.getTmpFolder();
+            }
+            var workspace = options.getTmpFolder().resolve("slices").resolve(key.replaceAll("[^\\w.$-]", "_"));
+            library.linkInto(workspace);
+            InMemoryCompiler.writeClasses(result.classes(), workspace);
+            var sourceFile = workspace.resolve(options.getTmpFolder().relativize(options.getTmpFile()));
+            Files.createDirectories(sourceFile.getParent());
+            Files.writeString(sourceFile, sliced);
+            context.getMetrics().recordSince(Metrics.COMPILE, context.fileLabel(), target.functionName(), start);
+            debug("Function %s runs on a slice with %d of %d lines.", key,
+                    sliced.lines().filter(it -> !it.isBlank()).count(), source.lines().filter(it -> !it.isBlank()).count());
+            return workspace;
+        } catch (IOException e) {
+            debug("Could not slice the translation for %s: %s", key, e.getMessage());
+            return options.getTmpFolder();
+        }
+    }
 
-            for (var diagnostic : diagnostics.getDiagnostics()) {
-                info("%s", diagnostic);
+    /**
+     * The sources every translation is compiled against: {@code CProver} and the library files, which are placed
+     * directly in the workspace.
+     */
+    private List<SupportLibrary.Source> supportSources() throws IOException {
+        var sources = new ArrayList<SupportLibrary.Source>();
+        try (InputStream is = JJBMCOptions.class.getResourceAsStream("/cli/CProver.java")) {
+            sources.add(new SupportLibrary.Source("org.cprover.CProver", "org/cprover/CProver.java",
+                    new String(Objects.requireNonNull(is).readAllBytes(), StandardCharsets.UTF_8)));
+        }
+        for (String s : options.libFiles) {
+            var libFile = options.getFileName().resolveSibling(s);
+            if (!Files.exists(libFile)) {
+                throw new FileNotFoundException("Could not find libFile: " + libFile);
             }
+            var source = Files.readString(libFile);
+            var packageMatcher = PACKAGE_DECLARATION.matcher(source);
+            var name = libFile.getFileName().toString().replace(".java", "");
+            sources.add(new SupportLibrary.Source(packageMatcher.find() ? packageMatcher.group(1) + "." + name : name,
+                    libFile.getFileName().toString(), source));
         }
-        return true;
+        return sources;
     }
 
     private void compileWithJavac() throws Exception {
@@ -198,94 +369,338 @@ public class Operations implements Callable<Integer> {
 
         debug("Compilation successful.");
 
-        if (!JbmcFacade.verifyJBMCVersion(options.jbmcBin, options.isWindows())) {
+        if (!session.verifyJbmc(options.jbmcBin, options.isWindows())) {
             throw new Exception("Unverified JBMC version");
         }
     }
 
-    private void copyLibraryFiles(Path fileName) throws IOException {
-        for (String s : options.libFiles) {
-            var tmpF = fileName.resolveSibling(s);
-            if (!Files.exists(tmpF)) {
-                throw new FileNotFoundException("Could not find libFile: " + tmpF);
-            } else {
-                copySubjectOfVerification(tmpF, options.getTmpFolder().resolve(tmpF.getFileName()));
-            }
-        }
-    }
-
     private static List<String> prepareJBMCOptions(List<String> options) {
         List<String> res = new ArrayList<>();
         for (String s : options) {
-            res.addAll(Arrays.asList(s.split(" ")));
+            if (!s.isBlank()) {
+                res.addAll(Arrays.asList(s.trim().split(" +")));
+            }
         }
         return res;
     }
 
     public void translateAndRunJBMC() throws Exception {
-        prepareSource();
-        compile();
+        notifyListeners(options.getFileName(), it -> it.onStart(options.getFileName()));
+        var translations = this.translations;
+        if (translations != null) {
+            translations.acquire();
+        }
+        try {
+            prepareSource();
+            compile();
+        } finally {
+            if (translations != null) {
+                translations.release();
+            }
+        }
 
-        var fnv = FunctionNameVisitor.parseFile(options.getTmpFile(), true);
-        var functionNames = fnv.getFunctionNames();
-        var paramMap = fnv.getParamMap();
+        var targets = context.getTargets();
 
-        List<String> allFunctionNames = new ArrayList<>(functionNames);
+        var verificationTargets = targets.stream().filter(t -> !t.sanityCheck()).toList();
+        List<String> allFunctionNames = verificationTargets.stream().map(VerificationTarget::functionName).toList();
 
         if (options.functionName != null) {
-            if (!options.functionName.endsWith("Verification")) {
-                options.functionName = options.functionName + "Verification";
+            if (!options.functionName.endsWith(VerificationTarget.VERIFICATION_SUFFIX)) {
+                options.functionName = options.functionName + VerificationTarget.VERIFICATION_SUFFIX;
             }
-            functionNames = functionNames.stream().filter(f -> f.contains("." + options.functionName + ":")).toList();
-            if (functionNames.isEmpty()) {
+            verificationTargets = verificationTargets.stream()
+                    .filter(t -> t.methodName().equals(options.functionName))
+                    .toList();
+            if (verificationTargets.isEmpty()) {
                 warn("Function " + options.functionName + " could not be found in the specified file.");
                 warn("Found the following functions: " + allFunctionNames);
                 return;
             }
         }
-        info("Run jbmc for " + functionNames.size() + " functions.");
+        if ((options.isFullTraceRequested() || !options.getRelevantVars().isEmpty()) && !options.runWithTrace) {
+            options.runWithTrace = true;
+            warn("Options concerning the trace where found but not -tr option was given. \"-tr\" was automatically added.");
+        }
+        jbmcOptions = prepareJBMCOptions(options.getJbmcOptions());
+        if (options.isSlice() && supportClasses == null) {
+            warn("Slicing needs the compiler API and library files that compile without the verified file. "
+                    + "jbmc gets the whole translation.");
+        }
+        verdictCache = options.getVerdictCache() == null ? null : new VerdictCache(options.getVerdictCache());
+
+        // the sanity check of a function runs next to its verification in the same pool
+        Map<VerificationTarget, VerificationTarget> sanityChecks = new HashMap<>();
+        for (VerificationTarget target : verificationTargets) {
+            targets.stream().filter(t -> t.isSanityCheckOf(target)).findFirst().ifPresent(t -> sanityChecks.put(target, t));
+        }
 
-        for (String functionName : functionNames) {
-            if (options.isWindows()) {
-                if (functionName.contains("()")) {
-                    functionName = functionName.replace("<init>", "<clinit>");
+        int calls = verificationTargets.size() + sanityChecks.size();
+        // a raced function occupies one core per configuration
+        int processesPerCall = options.isRace() ? options.getPortfolio().size() : 1;
+        int jobs = Math.max(1, Math.min(options.getJobs() / processesPerCall, calls));
+        info("Run jbmc for " + verificationTargets.size() + " functions using " + jobs + " parallel jobs.");
+        if (options.getBudget() > 0) {
+            scheduler = new BudgetScheduler(options.getBudget(), jobs, CostHistory.load(options.getCostHistory()));
+            // cheap functions first, their results are printed in this order as well
+            verificationTargets = scheduler.order(verificationTargets, t -> Stream.concat(Stream.of(t), Stream.ofNullable(sanityChecks.get(t)))
+                    .map(it -> costKey(it.functionName()))
+                    .toList());
+        }
+
+        List<Future<VerificationResult>> results = new ArrayList<>(verificationTargets.size());
+        List<VerificationResult> verified = new ArrayList<>(verificationTargets.size());
+        try (ExecutorService workers = Executors.newFixedThreadPool(jobs)) {
+            for (VerificationTarget target : verificationTargets) {
+                var result = submit(workers, target);
+                var sanityCheck = sanityChecks.get(target);
+                if (sanityCheck != null) {
+                    result = result.thenCombine(submit(workers, sanityCheck), (r, sanityResult) -> {
+                        r.setSanityCheck(sanityResult);
+                        return r;
+                    });
                 }
-                functionName = "\"" + functionName + "\"";
+                // the listeners get every function as soon as it is done, e.g. for reports and the server
+                results.add(result.thenApply(r -> {
+                    notifyListeners(r);
+                    return r;
+                }));
             }
 
-            try (ExecutorService executerService = Executors.newFixedThreadPool(1)) {
-                String finalFunctionName = functionName;
-                Runnable worker = () -> runJBMC(finalFunctionName, paramMap);
-                final Future<?> handler = executerService.submit(worker);
-                handler.get(options.timeout, TimeUnit.MILLISECONDS);
-            } catch (TimeoutException e) {
-                if (jbmcProcess != null) {
-                    jbmcProcess.destroyForcibly();
+            // results are printed in the order of the functions, independent of which jbmc call finishes first
+            for (Future<VerificationResult> result : results) {
+                try {
+                    var r = result.get();
+                    printResult(r);
+                    verified.add(r);
+                } catch (ExecutionException e) {
+                    e.printStackTrace();
                 }
-                info(YELLOW_BOLD + "JBMC call for function " + functionName + " timed out." + RESET + "\n");
-            } catch (InterruptedException | ExecutionException e) {
-                e.printStackTrace();
             }
         }
+        if (scheduler != null) {
+            scheduler.getHistory().save();
+        }
+        if (options.timed) {
+            printResourceSummary(verified);
+        }
     }
 
-    public void printOutput(@Nullable JBMCOutput output, long time, String functionName) {
-        if (output == null) {
-            options.keepTranslation = true;
-            error("Error parsing xml-output of JBMC.");
+    /**
+     * Lists the resources of all functions, the largest memory consumers first.
+     */
+    private void printResourceSummary(List<VerificationResult> results) {
+        var measured = results.stream()
+                .filter(it -> it.getResources() != null)
+                .sorted(Comparator.comparingLong((VerificationResult it) -> it.getResources().peakRss()).reversed())
+                .toList();
+        if (measured.isEmpty()) {
             return;
         }
-        if (options.doSanityCheck) {
-            if (output.printStatus().contains("SUCC")) {
-                warn("Sanity check failed for: " + functionName);
+        info("Resource usage of jbmc per function:");
+        for (VerificationResult result : measured) {
+            info("  " + result.getFunctionName() + ": " + result.getResources()
+                    + (result.getStatus() == VerificationResult.Status.TIMEOUT ? " (timed out)" : ""));
+        }
+    }
+
+    private String costKey(String functionName) {
+        return CostHistory.key(options.getFileName(), functionName.replace("\"", ""));
+    }
+
+    private CompletableFuture<VerificationResult> submit(ExecutorService workers, VerificationTarget target) {
+        String functionName = target.functionName();
+        if (options.isWindows()) {
+            if (functionName.contains("()")) {
+                functionName = functionName.replace("<init>", "<clinit>");
+            }
+            functionName = "\"" + functionName + "\"";
+        }
+        String finalFunctionName = functionName;
+        if (options.isPerProperty() && !target.sanityCheck()) {
+            return submitPerProperty(workers, finalFunctionName);
+        }
+        return CompletableFuture.supplyAsync(() -> runJBMC(finalFunctionName), workers);
+    }
+
+    private void notifyListeners(VerificationResult result) {
+        notifyListeners(result.getFunctionName(), it -> it.onResult(result));
+    }
+
+    /**
+     * Passes the event to every listener. A listener that fails, e.g. a report that cannot be written, is logged and
+     * neither keeps the others from the event nor changes the result of the function.
+     */
+    private void notifyListeners(Object subject, Consumer<VerificationListener> event) {
+        // functions finish on the threads of the pool, the listeners see one at a time
+        synchronized (listeners) {
+            for (VerificationListener listener : listeners) {
+                try {
+                    event.accept(listener);
+                } catch (RuntimeException e) {
+                    error("Listener %s failed for %s: %s", listener, subject, e.getMessage());
+                    debug(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Lists the properties of the function and checks each of them in its own job of the pool. Nothing blocks
+     * a worker while waiting for other jobs, the results are merged when the last property is done.
+     */
+    private CompletableFuture<VerificationResult> submitPerProperty(ExecutorService workers, String functionName) {
+        return CompletableFuture.supplyAsync(() -> listProperties(functionName), workers).thenCompose(properties -> {
+            if (properties.size() < 2) {
+                return CompletableFuture.supplyAsync(() -> runJBMC(functionName), workers);
+            }
+            List<CompletableFuture<VerificationResult>> propertyResults = new ArrayList<>(properties.size());
+            for (String property : properties) {
+                String quoted = options.isWindows() ? "\"" + property + "\"" : property;
+                propertyResults.add(CompletableFuture.supplyAsync(
+                        () -> runFunction(functionName, List.of("--property", quoted)), workers));
+            }
+            return CompletableFuture.allOf(propertyResults.toArray(new CompletableFuture[0]))
+                    .thenApply(it -> mergeProperties(functionName, properties,
+                            propertyResults.stream().map(CompletableFuture::join).toList()));
+        });
+    }
+
+    private List<String> listProperties(String functionName) {
+        var showOptions = new ArrayList<>(jbmcOptions);
+        showOptions.add("--show-properties");
+        try (var jbmcProcess = launcher().start(jbmcArguments(functionName, options.getUnwinds(), showOptions),
+                workspace(functionName), options.timeout, stdout -> new String(stdout.readAllBytes(), StandardCharsets.UTF_8))) {
+            track(jbmcProcess);
+            String xmlOutput;
+            try {
+                xmlOutput = jbmcProcess.await();
+            } finally {
+                running.remove(jbmcProcess);
+            }
+            if (jbmcProcess.exitValue() != 0) {
+                debug("Could not list the properties of function %s, checking them together.", functionName);
+                return List.of();
+            }
+            var properties = TraceParser.parsePropertyNames(xmlOutput);
+            debug("Function %s has %d properties.", functionName, properties.size());
+            return properties;
+        } catch (Exception e) {
+            debug("Could not list the properties of function %s: %s", functionName, e.getMessage());
+            return List.of();
+        }
+    }
+
+    private VerificationResult mergeProperties(String functionName, List<String> properties, List<VerificationResult> results) {
+        var merged = new VerificationResult(functionName);
+        List<JBMCOutput> outputs = new ArrayList<>();
+        boolean timedOut = false;
+        for (int i = 0; i < results.size(); i++) {
+            var result = results.get(i);
+            // the jbmc time spent on the function, not the wall-clock time of the parallel jobs
+            merged.setTime(merged.getTime() + result.getTime());
+            merged.setResources(plus(merged.getResources(), result.getResources()));
+            merged.setUnwind(Math.max(merged.getUnwind(), result.getUnwind()));
+            var output = result.getOutput();
+            if (result.getStatus() == VerificationResult.Status.DONE && output != null) {
+                outputs.add(output);
             } else {
-                info("Sanity check ok for function: " + functionName);
+                merged.getUnknownProperties().add(properties.get(i));
+                timedOut |= result.getStatus() == VerificationResult.Status.TIMEOUT;
+            }
+        }
+        merged.setCached(results.stream().allMatch(VerificationResult::isCached));
+        var output = JBMCOutput.merge(outputs);
+        output.setResources(merged.getResources());
+        merged.setOutput(output);
+        // a counterexample for one property is a verdict, even if other properties are unknown
+        if (!merged.getUnknownProperties().isEmpty() && !output.getProverStatus().contains("FAILURE")) {
+            merged.setStatus(timedOut ? VerificationResult.Status.TIMEOUT : VerificationResult.Status.ERROR);
+        }
+        return merged;
+    }
+
+    /**
+     * The verdict as it is shown in flight recordings: the prover status if jbmc gave one, the status otherwise.
+     */
+    private static String verdict(VerificationResult.Status status, @Nullable JBMCOutput output) {
+        if (status != VerificationResult.Status.DONE || output == null) {
+            return status.name();
+        }
+        return output.getProverStatus().isBlank() ? status.name() : output.getProverStatus().trim();
+    }
+
+    private static @Nullable ResourceUsage plus(@Nullable ResourceUsage a, @Nullable ResourceUsage b) {
+        return a == null ? b : b == null ? a : a.plus(b);
+    }
+
+    public void addListener(VerificationListener listener) {
+        listeners.add(listener);
+    }
+
+    public void printResult(VerificationResult result) {
+        switch (result.getStatus()) {
+            case TIMEOUT -> info(YELLOW_BOLD + "JBMC call for function " + result.getFunctionName() + " timed out"
+                    + (options.isAdaptiveUnwind() ? " at unwind " + result.getUnwind() : "") + "." + RESET + "\n");
+            case DONE -> {
+                if (result.isCached()) {
+                    info("Verdict for function " + result.getFunctionName() + " taken from the cache.");
+                }
+                if (options.isAdaptiveUnwind()) {
+                    info("Function " + result.getFunctionName() + " was checked with unwind " + result.getUnwind() + ".");
+                }
+                var configuration = result.getConfiguration();
+                if (configuration != null) {
+                    info("Verdict for function " + result.getFunctionName() + " found with configuration "
+                            + (configuration.isBlank() ? "plain" : "\"" + configuration + "\"") + ".");
+                }
+                printOutput(result.getOutput(), result.getTime(), result.getFunctionName());
+            }
+            case ERROR -> {
+                //errors are reported by the jbmc call itself
             }
+        }
+        if (!result.getUnknownProperties().isEmpty() && !cancelled) {
+            warn("No verdict for the properties " + result.getUnknownProperties() + " of function "
+                    + result.getFunctionName() + ".");
+            var output = result.getOutput();
+            if (result.getStatus() != VerificationResult.Status.DONE && output != null && output.getErrors().isEmpty()) {
+                info("All other properties of function " + result.getFunctionName() + " hold.");
+            }
+        }
+        var sanityCheck = result.getSanityCheck();
+        // sanity checks skipped by -failFast are not reported
+        if (sanityCheck != null && !(cancelled && sanityCheck.getStatus() == VerificationResult.Status.ERROR)) {
+            printSanityCheck(sanityCheck, result.getFunctionName());
+        }
+    }
+
+    private void printSanityCheck(VerificationResult sanityCheck, String functionName) {
+        var output = sanityCheck.getOutput();
+        if (sanityCheck.getStatus() == VerificationResult.Status.TIMEOUT) {
+            info(YELLOW_BOLD + "Sanity check for function " + functionName + " timed out." + RESET);
+        } else if (sanityCheck.getStatus() == VerificationResult.Status.ERROR || output == null) {
+            error("Sanity check for function " + functionName + " could not be run.");
+        } else if (output.printStatus().contains("SUCC")) {
+            // "assert false" holds, so the assumptions of the method are contradictory
+            warn("Sanity check failed for: " + functionName);
+        } else {
+            info("Sanity check ok for function: " + functionName);
+        }
+    }
+
+    public void printOutput(@Nullable JBMCOutput output, long time, String functionName) {
+        if (output == null) {
+            options.keepTranslation = true;
+            error("Error parsing xml-output of JBMC.");
             return;
         }
         info("Result for function " + functionName + ":");
         if (options.timed) {
             info("JBMC took " + time + "ms.");
+            var resources = output.getResources();
+            if (resources != null) {
+                info("JBMC used " + resources + ".");
+            }
         }
 
 
@@ -309,121 +724,485 @@ public class Operations implements Callable<Integer> {
         }
     }
 
-    public void runJBMC(String functionName, Map<String, List<String>> paramMap) {
-        try {
-            debug("Running jbmc for function: " + functionName);
-            String classFile = options.getTmpFile().getFileName().toString().replace(".java", "");
-            classFile = classFile.substring(classFile.lastIndexOf(File.separator + "tmp") + 5);
-            //classFile = "." + classFile;
-
-            ArrayList<String> tmp = new ArrayList<>();
-            if (options.isWindows()) {
-                tmp.add("cmd.exe");
-                tmp.add("/c");
-                classFile = classFile.replaceAll("\\\\", "/");
-            }
-            tmp.add("jbmc");
-            tmp.add(classFile);
-            tmp.add("--function");
-            tmp.add(functionName);
-            tmp.add("--unwind");
-            tmp.add(String.valueOf(options.getUnwinds()));
-            tmp.add("--max-nondet-array-length");
-            tmp.add(String.valueOf(options.getMaxArraySize()));
-
-            jbmcOptions = prepareJBMCOptions(options.getJbmcOptions());
-            tmp.addAll(options.getJbmcOptions());
-            tmp.add("--xml-ui");
-            //tmp.add("--cp");
-            String libPath = System.getProperty("java.library.path");
-            //tmp.add(libPath);
-            String[] commands = new String[tmp.size()];
-            commands = tmp.toArray(commands);
-
-            debug(Arrays.toString(commands));
-            Runtime rt = Runtime.getRuntime();
-            rt.addShutdownHook(new Thread(() -> {
-                try {
-                    cleanUp();
-                } catch (IOException e) {
-                    throw new RuntimeException(e);
-                }
-            }));
-            long start = System.currentTimeMillis();
+    public VerificationResult runJBMC(String functionName) {
+        return runFunction(functionName, List.of());
+    }
 
-            jbmcProcess = rt.exec(commands, null, options.getTmpFolder().toFile());
+    private VerificationResult runFunction(String functionName, List<String> extraOptions) {
+        if (cancelled) {
+            var result = new VerificationResult(functionName);
+            result.setStatus(VerificationResult.Status.ERROR);
+            return result;
+        }
+        var functionOptions = new ArrayList<>(jbmcOptions);
+        functionOptions.addAll(extraOptions);
+        int timeout = options.timeout;
+        String costKey = String.join(" ", costKey(functionName), String.join(" ", extraOptions)).trim();
+        var budget = scheduler;
+        if (budget != null) {
+            timeout = budget.timeoutFor(costKey);
+            if (timeout <= 0) {
+                warn("The time budget is used up, function " + functionName + " is not run.");
+                var result = new VerificationResult(functionName);
+                result.setStatus(VerificationResult.Status.TIMEOUT);
+                return result;
+            }
+            debug("Function %s gets a timeout of %dms.", functionName, timeout);
+        }
+        var result = options.isAdaptiveUnwind()
+                ? runJBMCAdaptive(functionName, functionOptions, timeout)
+                : runConfigured(functionName, options.getUnwinds(), timeout, functionOptions);
+        if (budget != null) {
+            budget.finished(costKey, result);
+        }
+        return result;
+    }
 
+    private VerificationResult runConfigured(String functionName, int unwind, int timeout, List<String> jbmcOptions) {
+        if (options.isRace()) {
+            return runJBMCPortfolio(functionName, unwind, timeout, jbmcOptions);
+        }
+        return runJBMC(functionName, unwind, timeout, jbmcOptions);
+    }
 
-            BufferedReader stdInput = new BufferedReader(new
-                    InputStreamReader(jbmcProcess.getInputStream()));
+    /**
+     * Runs all configurations of the portfolio at the same time. The first configuration that reaches a verdict
+     * wins and the jbmc processes of the others are killed. If none does, a timeout is preferred over an error.
+     */
+    private VerificationResult runJBMCPortfolio(String functionName, int unwind, int timeout, List<String> jbmcOptions) {
+        Queue<VerificationResult> losers = new ConcurrentLinkedQueue<>();
+        List<Callable<VerificationResult>> configurations = new ArrayList<>();
+        for (String configuration : options.getPortfolio()) {
+            configurations.add(() -> {
+                var configuredOptions = new ArrayList<>(jbmcOptions);
+                configuredOptions.addAll(prepareJBMCOptions(List.of(configuration)));
+                var result = runJBMC(functionName, unwind, timeout, configuredOptions);
+                result.setConfiguration(configuration);
+                var output = result.getOutput();
+                if (result.getStatus() != VerificationResult.Status.DONE || output == null || !output.getErrors().isEmpty()) {
+                    losers.add(result);
+                    throw new IllegalStateException("No verdict with configuration: " + configuration);
+                }
+                if (output.getFailedProperties().isEmpty() && restrictsInputs(configuration)) {
+                    // a proof for fewer inputs is no proof, only its counterexamples are
+                    throw new IllegalStateException("Only counterexamples count with configuration: " + configuration);
+                }
+                return result;
+            });
+        }
 
-            BufferedReader stdError = new BufferedReader(new
-                    InputStreamReader(jbmcProcess.getErrorStream()));
+        var race = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            var winner = race.invokeAny(configurations);
+            debug("Configuration \"%s\" won for function %s.", winner.getConfiguration(), functionName);
+            return winner;
+        } catch (ExecutionException e) {
+            return losers.stream().filter(it -> it.getStatus() == VerificationResult.Status.TIMEOUT).findFirst()
+                    .or(() -> losers.stream().findFirst())
+                    .orElseGet(() -> {
+                        var result = new VerificationResult(functionName);
+                        result.setStatus(VerificationResult.Status.ERROR);
+                        return result;
+                    });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            var result = new VerificationResult(functionName);
+            result.setStatus(VerificationResult.Status.ERROR);
+            return result;
+        } finally {
+            // the losers are interrupted by invokeAny, which kills their jbmc processes
+            race.shutdownNow();
+        }
+    }
 
+    /**
+     * Whether the jbmc options check fewer inputs than a plain run, e.g. {@code --max-nondet-tree-depth 2}.
+     */
+    static boolean restrictsInputs(String configuration) {
+        return prepareJBMCOptions(List.of(configuration)).stream()
+                .anyMatch(it -> INPUT_RESTRICTIONS.contains(it.split("=", 2)[0]));
+    }
 
-            StringBuilder sb = new StringBuilder();
-            String line = stdInput.readLine();
-            while (line != null) {
-                sb.append(line);
-                sb.append(System.lineSeparator());
-                line = stdInput.readLine();
+    /**
+     * Iterative deepening: runs jbmc with increasing unwind bounds as long as only unwinding assertions fail,
+     * until the timeout of the function is used up or the maximal bound is reached.
+     */
+    private VerificationResult runJBMCAdaptive(String functionName, List<String> jbmcOptions, int timeout) {
+        var adaptiveOptions = new ArrayList<>(jbmcOptions);
+        if (!adaptiveOptions.contains("--unwinding-assertions")) {
+            adaptiveOptions.add("--unwinding-assertions");
+        }
+        long deadline = System.currentTimeMillis() + timeout;
+        long time = 0;
+        @Nullable ResourceUsage resources = null;
+        int unwind = options.getUnwinds();
+        while (true) {
+            long remaining = deadline - System.currentTimeMillis();
+            var result = runConfigured(functionName, unwind, (int) Math.max(remaining, 1), adaptiveOptions);
+            time += result.getTime();
+            result.setTime(time);
+            resources = plus(resources, result.getResources());
+            result.setResources(resources);
+            var output = result.getOutput();
+            if (output != null) {
+                output.setResources(resources);
+            }
+            if (result.getStatus() != VerificationResult.Status.DONE || output == null
+                    || !output.isUnwindingInsufficient() || unwind >= options.getAdaptiveUnwindMax()) {
+                return result;
+            }
+            debug("Unwinding assertions failed for function %s with unwind %d.", functionName, unwind);
+            if (System.currentTimeMillis() >= deadline) {
+                return result;
             }
+            unwind++;
+        }
+    }
 
-            if (Thread.interrupted()) {
-                return;
+    private VerificationResult runJBMC(String functionName, int unwind, int timeout, List<String> jbmcOptions) {
+        var result = new VerificationResult(functionName);
+        result.setUnwind(unwind);
+        var event = new JfrEvents.JbmcInvocation();
+        event.begin(options, functionName);
+        event.unwind = unwind;
+        try {
+            @Nullable String cacheKey = null;
+            var translation = context.getTranslation();
+            if (verdictCache != null && translation != null) {
+                cacheKey = VerdictCache.key(translation, functionName, unwind, options, jbmcOptions,
+                        session.toolchainFingerprint(options));
+                var cached = verdictCache.lookup(cacheKey);
+                if (cached.isPresent()) {
+                    debug("Reusing cached verdict for function: " + functionName);
+                    result.setCached(true);
+                    long start = System.nanoTime();
+                    var parseEvent = new JfrEvents.TraceParsing();
+                    parseEvent.begin(options, functionName);
+                    parseEvent.unwind = unwind;
+                    var output = TraceParser.parse(cached.get().toFile(), options.runWithTrace, context, functionName);
+                    context.getMetrics().recordSince(Metrics.XML_PARSE, context.fileLabel(), functionName, start);
+                    parseEvent.outputSize = Files.size(cached.get());
+                    parseEvent.verdict = verdict(VerificationResult.Status.DONE, output);
+                    parseEvent.commit();
+                    context.getMetrics().countJbmcCall("CACHED", context.fileLabel(), functionName);
+                    result.setOutput(output);
+                    output.getFailedProperties().forEach(it -> onCounterexample(functionName, it, null));
+                    return result;
+                }
             }
 
-            //Has to stay down here otherwise not reading the output may block the process
-            jbmcProcess.waitFor();
-            long end = System.currentTimeMillis();
+            debug("Running jbmc for function: " + functionName);
+            var arguments = jbmcArguments(functionName, unwind, jbmcOptions);
+            debug(arguments.toString());
+
+            // the output is parsed while jbmc writes it; the raw xml only goes to disk for the cache and xmlout.xml
+            Path rawOutput = Files.createTempFile(options.getTmpFolder(), "jbmc", ".xml");
+            var self = new AtomicReference<@Nullable JbmcCall<?>>();
+            try {
+                @Nullable JBMCOutput output = null;
+                @Nullable IOException readError = null;
+                int exitValue;
+                // every function has its own timeout, counted from the start of its jbmc process
+                try (var jbmcProcess = launcher().start(arguments, workspace(functionName), timeout,
+                        stdout -> parseOutput(stdout, rawOutput, functionName, self))) {
+                    self.set(jbmcProcess);
+                    track(jbmcProcess);
+                    try {
+                        output = jbmcProcess.await();
+                    } catch (IOException e) {
+                        readError = e;
+                    } finally {
+                        running.remove(jbmcProcess);
+                    }
+                    result.setTime(jbmcProcess.time());
+                    result.setResources(jbmcProcess.resources());
+                    context.getMetrics().record(Metrics.JBMC, context.fileLabel(), functionName, jbmcProcess.time() * 1_000_000);
+                    if (jbmcProcess.isCancelled()) {
+                        result.setStatus(VerificationResult.Status.ERROR);
+                        return result;
+                    }
+                    if (jbmcProcess.isTimedOut()) {
+                        result.setStatus(VerificationResult.Status.TIMEOUT);
+                        return result;
+                    }
+                    exitValue = jbmcProcess.exitValue();
+                    if (!jbmcProcess.errorOutput().isBlank()) {
+                        debug("jbmc wrote to stderr for function %s:%n%s", functionName, jbmcProcess.errorOutput());
+                    }
+                }
 
-            String xmlOutput = sb.toString();
-            //String error = sb2.toString();
+                if ((exitValue != 0 && exitValue != 10) || options.keepTranslation) {
+                    options.keepTranslation = true;
+                    synchronized (this) {
+                        Files.copy(rawOutput, options.getTmpFolder().toAbsolutePath().resolve("xmlout.xml"),
+                                StandardCopyOption.REPLACE_EXISTING);
+                    }
+                    if (exitValue != 0 && exitValue != 10) {
+                        error("JBMC did not terminate as expected for function: " + functionName +
+                                "\nif ran with -kt option jbmc output can be found in xmlout.xml in the workspace");
+                        result.setStatus(VerificationResult.Status.ERROR);
+                        return result;
+                    }
+                } else {
+                    debug("JBMC terminated normally.");
+                }
+
+                if (output != null) {
+                    output.setResources(result.getResources());
+                    result.setOutput(output);
+                    if (verdictCache != null && cacheKey != null) {
+                        verdictCache.store(cacheKey, rawOutput);
+                    }
+                } else {
+                    error("Unexpected jbmc output:");
+                    error(Files.readString(rawOutput));
+                    if (readError != null) {
+                        debug(readError);
+                    }
+                    result.setStatus(VerificationResult.Status.ERROR);
+                }
+            } finally {
+                event.outputSize = Files.size(rawOutput);
+                Files.deleteIfExists(rawOutput);
+            }
+        } catch (InterruptedException e) {
+            // cancelled, e.g. lost a portfolio race; the jbmc process is already killed
+            Thread.currentThread().interrupt();
+            result.setStatus(VerificationResult.Status.ERROR);
+        } catch (Exception e) {
+            error("Error running jbmc.");
+            options.keepTranslation = true;
+            result.setStatus(VerificationResult.Status.ERROR);
+            e.printStackTrace();
+        } finally {
+            if (!result.isCached()) {
+                context.getMetrics().countJbmcCall(result.getStatus().name(), context.fileLabel(), functionName);
+                if (event.shouldCommit()) {
+                    event.verdict = verdict(result.getStatus(), result.getOutput());
+                    event.commit();
+                }
+            }
+        }
+        return result;
+    }
 
+    /**
+     * Parses the output of jbmc while it is written and copies it to the given file on the way.
+     *
+     * @param self the process that writes the output, once it is known
+     */
+    private JBMCOutput parseOutput(InputStream stdout, Path rawOutput, String functionName,
+                                   AtomicReference<@Nullable JbmcCall<?>> self) throws IOException, XMLStreamException {
+        long start = System.nanoTime();
+        var event = new JfrEvents.TraceParsing();
+        event.begin(options, functionName);
+        // the time spent waiting for jbmc to write is not part of the parsing
+        long[] waiting = {0};
+        try (var copy = new BufferedOutputStream(Files.newOutputStream(rawOutput))) {
+            // stdout itself stays open, the rest of it is drained by the JbmcProcess
+            var output = TraceParser.parse(new FilterInputStream(stdout) {
+                @Override
+                public int read() throws IOException {
+                    long readStart = System.nanoTime();
+                    int b = super.read();
+                    waiting[0] += System.nanoTime() - readStart;
+                    if (b >= 0) {
+                        event.outputSize++;
+                        copy.write(b);
+                    }
+                    return b;
+                }
 
-            if ((jbmcProcess.exitValue() != 0 && jbmcProcess.exitValue() != 10) || options.keepTranslation) {
-                options.keepTranslation = true;
-                Files.writeString(options.getTmpFolder().toAbsolutePath().resolve("xmlout.xml"), xmlOutput);
-                if (jbmcProcess.exitValue() != 0 && jbmcProcess.exitValue() != 10) {
-                    error("JBMC did not terminate as expected for function: " + functionName +
-                            "\nif ran with -kt option jbmc output can be found in xmlout.xml in the tmp folder");
-                    return;
+                @Override
+                public int read(byte[] buffer, int offset, int length) throws IOException {
+                    long readStart = System.nanoTime();
+                    int n = super.read(buffer, offset, length);
+                    waiting[0] += System.nanoTime() - readStart;
+                    if (n > 0) {
+                        event.outputSize += n;
+                        copy.write(buffer, offset, n);
+                    }
+                    return n;
                 }
-            } else {
-                debug("JBMC terminated normally.");
+
+                @Override
+                public void close() {
+                }
+            }, options.runWithTrace, context, functionName, property -> onCounterexample(functionName, property, self.get()));
+            long parsing = System.nanoTime() - start - waiting[0];
+            context.getMetrics().record(Metrics.XML_PARSE, context.fileLabel(), functionName, parsing);
+            debug("Parsing xml took: " + parsing / 1_000_000 + "ms.");
+            // the event spans the whole output, including the time jbmc needed to write it
+            event.verdict = verdict(VerificationResult.Status.DONE, output);
+            event.commit();
+            return output;
+        }
+    }
+
+    private JbmcLauncher launcher() {
+        return launcher != null ? launcher : JbmcLauncher.local(options.jbmcBin, options.isWindows());
+    }
+
+    /**
+     * The arguments of jbmc for the function; the launcher adds the binary.
+     */
+    private List<String> jbmcArguments(String functionName, int unwind, List<String> jbmcOptions) {
+        // the class relative to the workspace, in which jbmc runs, e.g. pkg/Name
+        String classFile = options.getTmpFolder().relativize(options.getTmpFile()).toString().replace(".java", "")
+                .replace(File.separatorChar, '/');
+
+        ArrayList<String> tmp = new ArrayList<>();
+        tmp.add(classFile);
+        tmp.add("--function");
+        tmp.add(functionName);
+        tmp.add("--unwind");
+        tmp.add(String.valueOf(unwind));
+        tmp.add("--max-nondet-array-length");
+        tmp.add(String.valueOf(options.getMaxArraySize()));
+
+        tmp.addAll(classLoadingOptions(functionName));
+        tmp.addAll(jbmcOptions);
+        tmp.add("--xml-ui");
+        return tmp;
+    }
+
+    /**
+     * {@code --java-no-load-class} for every class of the workspace the function cannot reach, see
+     * {@link ReachableClasses}. Empty with -loadAllClasses, for functions that are not verification methods and if
+     * the library files could not be parsed.
+     */
+    private List<String> classLoadingOptions(String functionName) {
+        var translation = context.getTranslation();
+        if (options.isLoadAllClasses() || translation == null) {
+            return List.of();
+        }
+        var target = target(functionName);
+        if (target == null) {
+            return List.of();
+        }
+        return classLoadingOptions.computeIfAbsent(target.className() + "." + target.methodName(), key -> {
+            var libraries = libraryUnits();
+            if (libraries == null || !supportsNoLoadClass()) {
+                return List.of();
+            }
+            var units = new ArrayList<CompilationUnit>();
+            units.add(translation);
+            units.addAll(libraries);
+            var arguments = new ArrayList<String>();
+            for (String className : ReachableClasses.unreachable(units, target.className(), target.methodName())) {
+                arguments.add("--java-no-load-class");
+                arguments.add(className);
             }
+            if (!arguments.isEmpty()) {
+                debug("Function %s: jbmc does not load %d unreachable classes.", key, arguments.size() / 2);
+            }
+            return arguments;
+        });
+    }
+
+    /**
+     * The verification method jbmc is called with, null for other functions.
+     */
+    private @Nullable VerificationTarget target(String functionName) {
+        var name = functionName.replace("\"", "");
+        return context.getTargets().stream()
+                .filter(it -> name.equals(it.className() + "." + it.methodName())
+                        || name.startsWith(it.className() + "." + it.methodName() + ":"))
+                .findFirst().orElse(null);
+    }
 
-            if ((options.isFullTraceRequested() || !options.getRelevantVars().isEmpty()) && !options.runWithTrace) {
-                options.runWithTrace = true;
-                warn("Options concerning the trace where found but not -tr option was given. \"-tr\" was automatically added.");
+    private synchronized @Nullable List<CompilationUnit> libraryUnits() {
+        if (!libraryParsed) {
+            libraryParsed = true;
+            var units = new ArrayList<CompilationUnit>();
+            try {
+                var parser = new JavaParser();
+                for (SupportLibrary.Source source : supportSources()) {
+                    if (source.binaryName().equals("org.cprover.CProver")) {
+                        continue;
+                    }
+                    var result = parser.parse(source.content());
+                    if (result.getResult().isEmpty() || !result.isSuccessful()) {
+                        throw new IOException("Could not parse " + source.path());
+                    }
+                    units.add(result.getResult().get());
+                }
+                libraryUnits = units;
+            } catch (IOException e) {
+                debug("jbmc loads all classes: %s", e.getMessage());
             }
+        }
+        return libraryUnits;
+    }
 
-            if (xmlOutput.startsWith("<?xml version=\"1.0\" encoding=\"UTF-8\"?>")) {
-                long start1 = System.currentTimeMillis();
-                JBMCOutput output = TraceParser.parse(xmlOutput, options.runWithTrace);
-                printOutput(output, end - start, functionName);
-                long duration = System.currentTimeMillis() - start1;
-                debug("Parsing xml took: " + duration + "ms.");
-            } else {
-                error("Unexpected jbmc output:");
-                error(xmlOutput);
+    /**
+     * Whether the jbmc binary knows {@code --java-no-load-class}; assumed if it cannot be probed, e.g. because it only
+     * exists on the workers of a distributed run.
+     */
+    private boolean supportsNoLoadClass() {
+        var jbmc = session.getToolchain().jbmc(options.jbmcBin, options.isWindows());
+        return !jbmc.isKnown() || jbmc.supports("--java-no-load-class");
+    }
+
+    /**
+     * Stops all running jbmc processes of this run and skips the functions that have not started yet.
+     */
+    public void cancel() {
+        cancel(null);
+    }
+
+    private void cancel(@Nullable JbmcCall<?> except) {
+        cancelled = true;
+        running.stream().filter(it -> it != except).forEach(JbmcCall::cancel);
+    }
+
+    /**
+     * Registers a started jbmc call for {@link #cancel()}. A cancel that came after the start but before the
+     * registration did not see the call, so it is cancelled here.
+     */
+    private void track(JbmcCall<?> call) {
+        running.add(call);
+        if (cancelled) {
+            call.cancel();
+        }
+    }
+
+    /**
+     * With -failFast the first counterexample stops everything but the jbmc call that found it, which still has to
+     * write the rest of its output. Unwinding assertions and sanity checks do not count, they are expected to fail.
+     */
+    private void onCounterexample(String functionName, String property, @Nullable JbmcCall<?> finder) {
+        if (!options.isFailFast() || property.contains(".unwind.")
+                || VerdictCache.methodName(functionName).endsWith(VerificationTarget.SANITY_CHECK_SUFFIX)) {
+            return;
+        }
+        synchronized (this) {
+            if (firstCounterexample != null) {
+                return;
             }
-        } catch (Exception e) {
-            error("Error running jbmc.");
-            options.keepTranslation = true;
-            e.printStackTrace();
+            firstCounterexample = functionName;
         }
+        warn("Counterexample for " + property + " found, stopping the remaining jbmc calls.");
+        cancel(finder);
     }
 
+    /**
+     * Removes the workspace of the run unless the translation is to be kept. The files are deleted in the background.
+     */
     public void cleanUp() throws IOException {
-        if (!didCleanUp && !options.keepTranslation) {
-            deleteFolder(options.getTmpFolder(), false);
-            if (!options.keepTranslation) {
-                try {
-                    Files.deleteIfExists(options.getTmpFolder());
-                } catch (IOException e) {
-                    //log.info("Could not delete tmp folder.");
-                }
+        if (!didCleanUp && options.hasTmpFolder()) {
+            var workspace = options.getTmpFolder();
+            if (launcher != null) {
+                sliceWorkspaces.values().forEach(launcher::release);
+                launcher.release(workspace);
+            }
+            if (options.keepTranslation) {
+                info("The translation and the output of jbmc are kept in " + workspace);
+            } else {
+                session.getTypeSolvers().invalidate(workspace);
+                Workspaces.deleteLater(workspace);
+                options.setTmpFolder(null);
+                options.setTmpFile(null);
             }
         }
         didCleanUp = true;
@@ -462,8 +1241,8 @@ public class Operations implements Callable<Integer> {
         }*/
     }
 
-    public static CompilationUnit rewriteAssert(CompilationUnit cu, JJBMCOptions options) {
-        return Jml2JavaFacade.translate(cu, options);
+    public static CompilationUnit rewriteAssert(CompilationUnit cu, VerificationContext context) {
+        return Jml2JavaFacade.translate(cu, context);
     }
 
     private boolean verifyJavaVersion(String binary) {
@@ -495,14 +1274,73 @@ public class Operations implements Callable<Integer> {
             options.forceInliningMethods = true;
         }
 
-        var f = options.getFileName();
-        translateAndRunJBMC();
-        if (options.doSanityCheck) {
-            options.doSanityCheck = false;
+        if (options.isAdaptiveUnwind() && options.getUnwinds() < options.getMaxArraySize() + 2) {
+            // an explicit -u below the default would not unroll the loops over the nondeterministic arrays
+            info("Starting the adaptive unwinding at %d to cover arrays of length %d.",
+                    options.getMaxArraySize() + 2, options.getMaxArraySize());
+            options.setUnwinds(options.getMaxArraySize() + 2);
+        }
+
+        // one hook per run, which is removed again when the run is over
+        Thread cleanUpHook = new Thread(() -> {
+            cancel();
+            try {
+                cleanUp();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        Runtime.getRuntime().addShutdownHook(cleanUpHook);
+        var jfr = options.getJfr();
+        var recording = jfr == null ? null : JfrEvents.startRecording();
+        var reporters = Reporter.open(options.getReports());
+        reporters.forEach(this::addListener);
+        try {
             translateAndRunJBMC();
+        } finally {
+            for (Reporter reporter : reporters) {
+                listeners.remove(reporter);
+                reporter.close();
+            }
+            if (recording != null) {
+                JfrEvents.stopRecording(recording, jfr);
+            }
+            try {
+                Runtime.getRuntime().removeShutdownHook(cleanUpHook);
+            } catch (IllegalStateException e) {
+                // the JVM is shutting down and the hook is running already
+            }
+            cleanUp();
+            writeMetrics();
         }
-        return 0;
+        return firstCounterexample != null ? EXIT_COUNTEREXAMPLE : 0;
     }
 
+    private void writeMetrics() {
+        var folder = options.getMetrics();
+        if (folder == null || context.getMetrics().isEmpty()) {
+            return;
+        }
+        // files with the same name in different folders of a batch must not overwrite each other's metrics
+        var file = options.getFileName().toAbsolutePath().normalize();
+        var name = "jjbmc_" + file.getFileName().toString().replace(".java", "") + "_" + pathHash(file);
+        try {
+            context.getMetrics().write(folder, name);
+            debug("Metrics written to %s", folder.resolve(name + ".json"));
+        } catch (IOException e) {
+            warn("Could not write metrics to " + folder + ": " + e.getMessage());
+        }
+    }
 
+    /**
+     * The first 8 hex digits of the SHA-256 of the path, the same on every run.
+     */
+    private static String pathHash(Path file) {
+        try {
+            var sha = MessageDigest.getInstance("SHA-256").digest(file.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(sha, 0, 4);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
 }
@@ -0,0 +1,144 @@
+package jjbmc;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.body.FieldDeclaration;
+import com.github.javaparser.ast.body.InitializerDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.expr.FieldAccessExpr;
+import com.github.javaparser.ast.expr.NameExpr;
+import com.github.javaparser.ast.nodeTypes.NodeWithName;
+import com.github.javaparser.ast.type.ClassOrInterfaceType;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Finds the classes of a workspace a verification function cannot reach, so jbmc can be told not to load them
+ * ({@code --java-no-load-class}). jbmc only converts the methods it reaches anyway, but it loads and converts every
+ * class referenced from the loaded ones, which is a fixed cost per call on files with many helper classes.
+ * <p>
+ * The analysis works on names and errs on the side of loading: of the class with the verification function only
+ * the methods it (transitively) calls count, of every other reachable class all members. A class is reachable if its
+ * simple name is mentioned as a type, a name or the last part of a qualified name, if it is an outer class or a
+ * subtype of a reachable class.
+ * Local and anonymous classes are never excluded.
+ */
+public final class ReachableClasses {
+    private ReachableClasses() {
+    }
+
+    /**
+     * The binary names of the declared classes that cannot be reached from the method.
+     *
+     * @param units      the translation and the library files
+     * @param className  the binary name of the class with the verification function
+     * @param methodName the name of the verification function
+     */
+    public static Set<String> unreachable(List<CompilationUnit> units, String className, String methodName) {
+        Map<String, TypeDeclaration<?>> types = new LinkedHashMap<>();
+        Map<String, List<String>> bySimpleName = new HashMap<>();
+        Map<String, List<String>> subtypes = new HashMap<>();
+        for (CompilationUnit unit : units) {
+            for (TypeDeclaration<?> type : unit.findAll(TypeDeclaration.class)) {
+                if (!isMember(type)) {
+                    continue;
+                }
+                var name = binaryName(type);
+                types.put(name, type);
+                bySimpleName.computeIfAbsent(type.getNameAsString(), it -> new ArrayList<>()).add(name);
+                if (type instanceof ClassOrInterfaceDeclaration c) {
+                    c.getExtendedTypes().forEach(it -> subtypes.computeIfAbsent(it.getNameAsString(), k -> new ArrayList<>()).add(name));
+                    c.getImplementedTypes().forEach(it -> subtypes.computeIfAbsent(it.getNameAsString(), k -> new ArrayList<>()).add(name));
+                }
+            }
+        }
+        var entry = types.get(className);
+        if (entry == null) {
+            // nothing known about the entry point, so everything may be reached
+            return Set.of();
+        }
+
+        var reachable = new LinkedHashSet<String>();
+        var todo = new ArrayDeque<String>();
+        todo.add(className);
+        while (!todo.isEmpty()) {
+            var name = todo.poll();
+            if (!reachable.add(name)) {
+                continue;
+            }
+            int outer = name.lastIndexOf('$');
+            if (outer > 0) {
+                todo.add(name.substring(0, outer));
+            }
+            var type = types.get(name);
+            if (type == null) {
+                continue;
+            }
+            todo.addAll(subtypes.getOrDefault(type.getNameAsString(), List.of()));
+            for (Node node : scanned(type, name.equals(className), methodName)) {
+                for (String mention : mentions(node)) {
+                    todo.addAll(bySimpleName.getOrDefault(mention, List.of()));
+                }
+            }
+        }
+        var unreachable = new TreeSet<>(types.keySet());
+        unreachable.removeAll(reachable);
+        return unreachable;
+    }
+
+    /**
+     * What counts of a reachable class: everything, but for the entry class only its header, fields, initializers
+     * and the methods the verification function calls.
+     */
+    private static List<Node> scanned(TypeDeclaration<?> type, boolean isEntry, String methodName) {
+        if (!isEntry) {
+            return List.of(type);
+        }
+        var nodes = new ArrayList<Node>();
+        if (type instanceof ClassOrInterfaceDeclaration c) {
+            nodes.addAll(c.getExtendedTypes());
+            nodes.addAll(c.getImplementedTypes());
+        }
+        nodes.addAll(type.getMembers().stream().filter(it -> it instanceof FieldDeclaration || it instanceof InitializerDeclaration).toList());
+        type.findCompilationUnit().ifPresent(cu -> nodes.addAll(VerdictCache.reachableCallables(cu, methodName)));
+        return nodes;
+    }
+
+    private static Set<String> mentions(Node node) {
+        var names = new LinkedHashSet<String>();
+        node.findAll(ClassOrInterfaceType.class).forEach(it -> names.add(it.getNameAsString()));
+        // static accesses such as Helper.f() or Helper.x
+        node.findAll(NameExpr.class).forEach(it -> names.add(it.getNameAsString()));
+        // qualified ones such as pkg.Helper.f(), pkg.Helper::f or pkg.Helper.x, whose scopes are field accesses
+        node.findAll(FieldAccessExpr.class).forEach(it -> names.add(it.getNameAsString()));
+        return names;
+    }
+
+    private static boolean isMember(TypeDeclaration<?> type) {
+        return type.getParentNode().map(it -> it instanceof CompilationUnit || it instanceof TypeDeclaration).orElse(true);
+    }
+
+    /**
+     * E.g. {@code pkg.Outer$Inner}.
+     */
+    static String binaryName(TypeDeclaration<?> type) {
+        var name = new StringBuilder(type.getNameAsString());
+        var parent = type.getParentNode().orElse(null);
+        while (parent instanceof TypeDeclaration<?> outer) {
+            name.insert(0, outer.getNameAsString() + "$");
+            parent = outer.getParentNode().orElse(null);
+        }
+        var packageName = type.findCompilationUnit().flatMap(CompilationUnit::getPackageDeclaration)
+                .map(NodeWithName::getNameAsString).orElse("");
+        return packageName.isEmpty() ? name.toString() : packageName + "." + name;
+    }
+}
@@ -0,0 +1,125 @@
+package jjbmc;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Samples the CPU time and memory of a process tree while it runs. On Linux the values are read from
+ * {@code /proc/<pid>/stat} and {@code /proc/<pid>/status}, elsewhere only the CPU time from
+ * {@link ProcessHandle.Info} is available. The CPU time consumed after the last sample is not seen.
+ */
+class ResourceSampler {
+    private static final Path PROC = Path.of("/proc");
+    /**
+     * The unit of the times in {@code /proc/<pid>/stat} (USER_HZ), which the kernel fixes to 100 for user space.
+     */
+    private static final long TICKS_PER_SECOND = 100;
+    /**
+     * Whether the times can be read from {@code /proc}; if not, only the total from {@link ProcessHandle.Info} is known.
+     */
+    private static final boolean HAS_PROC = Files.isDirectory(PROC.resolve("self"));
+
+    private final ProcessHandle root;
+    /**
+     * The last seen {user, system, total} CPU time in ms per pid. The values only grow, so the last sample is the best.
+     */
+    private final Map<Long, long[]> cpuTimes = new HashMap<>();
+    private long peakRss = -1;
+
+    ResourceSampler(ProcessHandle root) {
+        this.root = root;
+    }
+
+    synchronized void sample() {
+        long rss = 0;
+        boolean rssKnown = false;
+        for (ProcessHandle handle : Stream.concat(Stream.of(root), root.descendants()).toList()) {
+            long pid = handle.pid();
+            long[] times;
+            if (HAS_PROC) {
+                times = readStat(pid);
+                if (times == null) {
+                    // exited since descendants() listed it, its last sample counts
+                    continue;
+                }
+            } else {
+                long total = handle.info().totalCpuDuration().map(Duration::toMillis).orElse(-1L);
+                times = new long[]{-1, -1, total};
+            }
+            if (times[2] >= 0) {
+                cpuTimes.put(pid, times);
+            }
+            long[] memory = readStatus(pid);
+            if (memory != null) {
+                rssKnown = true;
+                rss += memory[0];
+                peakRss = Math.max(peakRss, memory[1]);
+            }
+        }
+        if (rssKnown) {
+            peakRss = Math.max(peakRss, rss);
+        }
+    }
+
+    synchronized ResourceUsage usage(long wallTime) {
+        if (cpuTimes.isEmpty()) {
+            return new ResourceUsage(wallTime, -1, -1, -1, peakRss);
+        }
+        long user = 0;
+        long system = 0;
+        long total = 0;
+        for (long[] times : cpuTimes.values()) {
+            user += times[0];
+            system += times[1];
+            total += times[2];
+        }
+        return HAS_PROC
+                ? new ResourceUsage(wallTime, total, user, system, peakRss)
+                : new ResourceUsage(wallTime, total, -1, -1, peakRss);
+    }
+
+    /**
+     * @return {user, system, total} CPU time in ms, or null if not available
+     */
+    private static long[] readStat(long pid) {
+        try {
+            String stat = Files.readString(PROC.resolve(pid + "/stat"));
+            // the command name in parentheses may contain spaces, the other fields follow after it
+            String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+            long user = Long.parseLong(fields[11]) * 1000 / TICKS_PER_SECOND;
+            long system = Long.parseLong(fields[12]) * 1000 / TICKS_PER_SECOND;
+            return new long[]{user, system, user + system};
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return {current, peak} resident set size in bytes, or null if not available
+     */
+    private static long[] readStatus(long pid) {
+        try {
+            long rss = -1;
+            long hwm = -1;
+            for (String line : Files.readAllLines(PROC.resolve(pid + "/status"))) {
+                if (line.startsWith("VmRSS:")) {
+                    rss = kilobytes(line);
+                } else if (line.startsWith("VmHWM:")) {
+                    hwm = kilobytes(line);
+                }
+            }
+            return rss < 0 ? null : new long[]{rss, Math.max(rss, hwm)};
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static long kilobytes(String line) {
+        return Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024;
+    }
+}
@@ -0,0 +1,41 @@
+package jjbmc;
+
+/**
+ * The resources used by jbmc for one function. Times are in ms, the peak resident set size in bytes;
+ * values that could not be measured on this platform are -1.
+ *
+ * @param wallTime   the wall-clock time from the start until jbmc exited
+ * @param cpuTime    the user and system CPU time of jbmc and its child processes
+ * @param userTime   the user part of {@code cpuTime}
+ * @param systemTime the system part of {@code cpuTime}
+ * @param peakRss    the largest resident set size of the process tree
+ */
+public record ResourceUsage(long wallTime, long cpuTime, long userTime, long systemTime, long peakRss) {
+    /**
+     * Combines the usage of two jbmc calls for the same function that ran one after another or in parallel:
+     * times add up, for the memory the larger peak counts.
+     */
+    public ResourceUsage plus(ResourceUsage other) {
+        return new ResourceUsage(wallTime + other.wallTime, add(cpuTime, other.cpuTime), add(userTime, other.userTime),
+                add(systemTime, other.systemTime), Math.max(peakRss, other.peakRss));
+    }
+
+    private static long add(long a, long b) {
+        return a < 0 || b < 0 ? Math.max(a, b) : a + b;
+    }
+
+    @Override
+    public String toString() {
+        var sb = new StringBuilder().append("wall ").append(wallTime).append("ms");
+        if (cpuTime >= 0) {
+            sb.append(", cpu ").append(cpuTime).append("ms");
+        }
+        if (userTime >= 0 && systemTime >= 0) {
+            sb.append(" (user ").append(userTime).append("ms, system ").append(systemTime).append("ms)");
+        }
+        if (peakRss >= 0) {
+            sb.append(", peak RSS ").append(peakRss / (1024 * 1024)).append("MB");
+        }
+        return sb.toString();
+    }
+}
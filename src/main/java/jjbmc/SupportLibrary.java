@@ -0,0 +1,170 @@
+package jjbmc;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static jjbmc.ErrorLogger.*;
+
+/**
+ * The files every translation needs next to it: {@code CProver} and the library files, as sources for the type
+ * solver and javac and, if they compile on their own, as class files for jbmc. They are written once per content
+ * into a shared folder below the workspace root and linked into every workspace: as hard links if possible,
+ * otherwise as symbolic links or, as a last resort, copies.
+ * <p>
+ * The shared folder is never written to after it was set up, so workspaces can be deleted freely. A new folder is set
+ * up whenever the content changes, e.g. with a new version of JJBMC or javac; the others are removed once no run has
+ * used them for {@link #STALE_AFTER}, as runs of another version may still link from them.
+ */
+public class SupportLibrary {
+    private static final String FOLDER = ".jjbmc-support";
+    static final Duration STALE_AFTER = Duration.ofHours(1);
+    private static final Set<Path> sweptRoots = ConcurrentHashMap.newKeySet();
+
+    /**
+     * A source of the library.
+     *
+     * @param binaryName the name of the class, e.g. {@code org.cprover.CProver}
+     * @param path       where the source is placed relative to the workspace
+     */
+    public record Source(String binaryName, String path, String content) {
+    }
+
+    private final Path folder;
+    /**
+     * Paths of all files relative to the folder.
+     */
+    private final List<Path> files;
+    private final boolean compiled;
+
+    private SupportLibrary(Path folder, List<Path> files, boolean compiled) {
+        this.folder = folder;
+        this.files = files;
+        this.compiled = compiled;
+    }
+
+    /**
+     * Sets up the library in {@code root}, or reuses it if a library with the same content is already there, e.g.
+     * from an earlier run. The classes are compiled only once per session.
+     */
+    public static SupportLibrary create(Path root, List<Source> sources, VerificationSession session) throws IOException {
+        var files = new TreeMap<String, byte[]>();
+        var byName = new LinkedHashMap<String, String>();
+        for (Source source : sources) {
+            files.put(source.path(), source.content().getBytes(StandardCharsets.UTF_8));
+            byName.put(source.binaryName(), source.content());
+        }
+        // null if the library files depend on the file under verification
+        var classes = session.compileSupportClasses(byName);
+        if (classes != null) {
+            classes.forEach((name, bytes) -> files.put(name.replace('.', '/') + ".class", bytes));
+        }
+        var folder = root.resolve(FOLDER).resolve(hash(files));
+        if (!Files.isDirectory(folder)) {
+            // set up next to the final folder and moved in one step, as other runs may set up the same library
+            Files.createDirectories(folder.getParent());
+            var staging = Files.createTempDirectory(folder.getParent(), folder.getFileName() + "-");
+            for (var entry : files.entrySet()) {
+                var file = staging.resolve(entry.getKey());
+                Files.createDirectories(file.getParent());
+                Files.write(file, entry.getValue());
+            }
+            try {
+                Files.move(staging, folder, StandardCopyOption.ATOMIC_MOVE);
+                debug("Support library set up in %s", folder);
+            } catch (FileAlreadyExistsException | DirectoryNotEmptyException e) {
+                Operations.deleteFolder(staging, true);
+            }
+        }
+        if (sweptRoots.add(folder.toAbsolutePath().normalize())) {
+            sweep(folder);
+        }
+        return new SupportLibrary(folder, files.keySet().stream().map(Path::of).toList(), classes != null);
+    }
+
+    /**
+     * Marks the folder as used and removes the folders of other contents, and staging folders of aborted runs, that
+     * were not used for {@link #STALE_AFTER}.
+     */
+    private static void sweep(Path current) {
+        try {
+            var now = Instant.now();
+            Files.setLastModifiedTime(current, FileTime.from(now));
+            try (var entries = Files.list(current.getParent())) {
+                for (Path other : entries.filter(it -> !it.equals(current)).toList()) {
+                    if (Files.getLastModifiedTime(other).toInstant().isBefore(now.minus(STALE_AFTER))) {
+                        debug("Removing the unused support library %s", other);
+                        Operations.deleteFolder(other, true);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            debug("Could not remove old support libraries next to %s: %s", current, e.getMessage());
+        }
+    }
+
+    private static String hash(Map<String, byte[]> files) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+            files.forEach((path, content) -> {
+                digest.update(path.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                digest.update(content);
+                digest.update((byte) 0);
+            });
+            return HexFormat.of().formatHex(digest.digest(), 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Whether the class files are part of the library, i.e. only the translation has to be compiled.
+     */
+    public boolean isCompiled() {
+        return compiled;
+    }
+
+    /**
+     * Makes all files of the library available in the workspace.
+     */
+    public void linkInto(Path workspace) throws IOException {
+        for (Path file : files) {
+            var target = workspace.resolve(file);
+            Files.createDirectories(target.getParent());
+            Files.deleteIfExists(target);
+            link(folder.resolve(file).toAbsolutePath(), target);
+        }
+        debug("Linked %d support files into %s", files.size(), workspace);
+    }
+
+    private static void link(Path existing, Path target) throws IOException {
+        try {
+            Files.createLink(target, existing);
+            return;
+        } catch (IOException | UnsupportedOperationException e) {
+            // e.g. the workspace is on another file system
+        }
+        try {
+            Files.createSymbolicLink(target, existing);
+        } catch (IOException | UnsupportedOperationException e) {
+            Files.copy(existing, target);
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package jjbmc;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import org.jspecify.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static jjbmc.ErrorLogger.*;
+
+/**
+ * Probes the external tools, jbmc and javac, for their version and the flags they support. A probe spawns the tool,
+ * so it is done once per binary: identified by its path, modification time and size, it is kept in memory and in a
+ * small cache file, which is shared by all runs of the same user.
+ */
+public class Toolchain {
+    private static final Pattern VERSION = Pattern.compile("(\\d+)\\.(\\d+)(?:\\.(\\d+))?");
+    private static final Pattern FLAG = Pattern.compile("(?<![\\w-])(--?[a-zA-Z][\\w-]*)");
+
+    /**
+     * What is known about one binary.
+     *
+     * @param path     the absolute path of the binary, or the name as given if it could not be found
+     * @param modified the modification time in milliseconds, -1 if unknown
+     * @param size     the size in bytes, -1 if unknown
+     * @param version  the version as printed by the tool, "unknown" if it could not be run
+     * @param major    the major version, -1 if unknown
+     * @param minor    the minor version, -1 if unknown
+     * @param flags    the command line flags listed in the help of the tool
+     */
+    public record Probe(String path, long modified, long size, String version, int major, int minor,
+                        List<String> flags) {
+        public boolean isKnown() {
+            return major >= 0;
+        }
+
+        public boolean supports(String flag) {
+            return flags.contains(flag);
+        }
+
+        /**
+         * Identifies the binary, e.g. for the keys of cached results.
+         */
+        public String fingerprint() {
+            return version + " " + path + "@" + modified + "/" + size;
+        }
+    }
+
+    private final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+    private final @Nullable Path cacheFile;
+    private final Map<String, Probe> probes = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    /**
+     * @param cacheFile where the probes are persisted, or null to keep them in memory only
+     */
+    public Toolchain(@Nullable Path cacheFile) {
+        this.cacheFile = cacheFile;
+    }
+
+    /**
+     * {@code $XDG_CACHE_HOME/jjbmc/toolchain.json}, or {@code ~/.cache/jjbmc/toolchain.json}.
+     */
+    public static Path defaultCacheFile() {
+        var xdg = System.getenv("XDG_CACHE_HOME");
+        var base = xdg != null && !xdg.isBlank() ? Path.of(xdg) : Path.of(System.getProperty("user.home"), ".cache");
+        return base.resolve("jjbmc").resolve("toolchain.json");
+    }
+
+    public Probe jbmc(String binary, boolean isWindows) {
+        return probe(binary, isWindows, "--version", "--help");
+    }
+
+    public Probe javac(String binary, boolean isWindows) {
+        return probe(binary, isWindows, "-version", "--help");
+    }
+
+    private Probe probe(String binary, boolean isWindows, String versionFlag, String helpFlag) {
+        var path = resolve(binary);
+        long modified = -1;
+        long size = -1;
+        if (path != null) {
+            try {
+                modified = Files.getLastModifiedTime(path).toMillis();
+                size = Files.size(path);
+            } catch (IOException e) {
+                path = null;
+            }
+        }
+        if (path == null) {
+            // nothing to identify the binary by, so nothing to cache
+            return run(binary, -1, -1, isWindows, versionFlag, helpFlag);
+        }
+        load();
+        var key = path.toString();
+        var cached = probes.get(key);
+        if (cached != null && cached.modified() == modified && cached.size() == size) {
+            return cached;
+        }
+        var probe = run(key, modified, size, isWindows, versionFlag, helpFlag);
+        if (probe.isKnown()) {
+            probes.put(key, probe);
+            save();
+        }
+        return probe;
+    }
+
+    private static Probe run(String binary, long modified, long size, boolean isWindows, String versionFlag,
+                             String helpFlag) {
+        debug("Probing %s", binary);
+        var version = output(binary, isWindows, versionFlag);
+        var help = output(binary, isWindows, helpFlag);
+        if (version == null || version.isEmpty()) {
+            return new Probe(binary, modified, size, "unknown", -1, -1, List.of());
+        }
+        // the banner of older jbmc versions is only part of the help
+        Matcher matcher = VERSION.matcher(version);
+        if (!matcher.find() && help != null) {
+            matcher = VERSION.matcher(help);
+            if (!matcher.find()) {
+                matcher = null;
+            }
+        }
+        int major = matcher != null ? Integer.parseInt(matcher.group(1)) : -1;
+        int minor = matcher != null ? Integer.parseInt(matcher.group(2)) : -1;
+        var flags = new TreeSet<String>();
+        if (help != null) {
+            var flagMatcher = FLAG.matcher(help);
+            while (flagMatcher.find()) {
+                flags.add(flagMatcher.group(1));
+            }
+        }
+        return new Probe(binary, modified, size, version.lines().findFirst().orElse(version).trim(), major, minor,
+                List.copyOf(flags));
+    }
+
+    /**
+     * Everything the tool prints with the given flag, or null if it could not be run.
+     */
+    private static @Nullable String output(String binary, boolean isWindows, String flag) {
+        var commands = isWindows ? List.of("cmd.exe", "/c", binary, flag) : List.of(binary, flag);
+        try {
+            Process process = new ProcessBuilder(commands).redirectErrorStream(true).start();
+            String output;
+            try (var in = process.getInputStream()) {
+                output = new String(in.readAllBytes(), StandardCharsets.UTF_8).trim();
+            }
+            process.waitFor();
+            return output;
+        } catch (IOException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    /**
+     * The absolute path of the binary: as given if it is a path, otherwise the first match on {@code $PATH}.
+     */
+    static @Nullable Path resolve(String binary) {
+        var given = Path.of(binary);
+        if (given.getParent() != null) {
+            return Files.isRegularFile(given) ? given.toAbsolutePath().normalize() : null;
+        }
+        var path = Objects.requireNonNullElse(System.getenv("PATH"), "");
+        var names = new ArrayList<>(List.of(binary));
+        if (File.separatorChar == '\\' && !binary.contains(".")) {
+            names.add(binary + ".exe");
+        }
+        return Arrays.stream(path.split(File.pathSeparator))
+                .filter(it -> !it.isEmpty())
+                .flatMap(dir -> names.stream().map(name -> Path.of(dir, name)))
+                .filter(Files::isRegularFile)
+                .findFirst()
+                .map(it -> it.toAbsolutePath().normalize())
+                .orElse(null);
+    }
+
+    private void load() {
+        if (loaded || cacheFile == null) {
+            return;
+        }
+        synchronized (this) {
+            if (loaded) {
+                return;
+            }
+            loaded = true;
+            if (!Files.isRegularFile(cacheFile)) {
+                return;
+            }
+            try {
+                Map<String, Probe> stored = gson.fromJson(Files.readString(cacheFile),
+                        new TypeToken<TreeMap<String, Probe>>() {
+                        }.getType());
+                if (stored != null) {
+                    stored.forEach(probes::putIfAbsent);
+                }
+            } catch (IOException | JsonParseException e) {
+                debug("Ignoring the toolchain cache %s: %s", cacheFile, e.getMessage());
+            }
+        }
+    }
+
+    private synchronized void save() {
+        if (cacheFile == null) {
+            return;
+        }
+        try {
+            Files.createDirectories(cacheFile.toAbsolutePath().getParent());
+            var tmp = Files.createTempFile(cacheFile.toAbsolutePath().getParent(), "toolchain", ".tmp");
+            Files.writeString(tmp, gson.toJson(new TreeMap<>(probes)));
+            Files.move(tmp, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            debug("Could not write the toolchain cache %s: %s", cacheFile, e.getMessage());
+        }
+    }
+}
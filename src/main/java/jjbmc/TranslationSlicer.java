@@ -0,0 +1,130 @@
+package jjbmc;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.BodyDeclaration;
+import com.github.javaparser.ast.body.FieldDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.body.VariableDeclarator;
+import com.github.javaparser.ast.expr.AssignExpr;
+import com.github.javaparser.ast.expr.FieldAccessExpr;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import com.github.javaparser.ast.expr.MethodReferenceExpr;
+import com.github.javaparser.ast.expr.NameExpr;
+import com.github.javaparser.ast.expr.ObjectCreationExpr;
+import com.github.javaparser.ast.expr.UnaryExpr;
+import org.jspecify.annotations.Nullable;
+
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * Cuts the printed translation down to what one verification method needs: the methods it (transitively) calls,
+ * e.g. the {@code *Contract} stubs and inlined methods, and the fields these read or write. The other methods and
+ * fields are replaced by empty lines, so the line numbers jbmc reports still match the {@code TraceInformation} of
+ * the whole translation.
+ * <p>
+ * Like {@link ReachableClasses} the analysis works on names and keeps what may be needed without a call in the
+ * source: constructors, initializers, abstract methods and their implementations, methods marked with
+ * {@code @Override} or overriding a method of {@code Object}, and fields whose initializer has side effects.
+ */
+public final class TranslationSlicer {
+    private static final Set<String> OBJECT_METHODS = Set.of("equals", "hashCode", "toString", "clone", "finalize");
+    private static final Set<UnaryExpr.Operator> INCREMENTS = Set.of(UnaryExpr.Operator.PREFIX_INCREMENT,
+            UnaryExpr.Operator.PREFIX_DECREMENT, UnaryExpr.Operator.POSTFIX_INCREMENT, UnaryExpr.Operator.POSTFIX_DECREMENT);
+
+    private TranslationSlicer() {
+    }
+
+    /**
+     * The source with the members the method cannot reach blanked out.
+     *
+     * @param source     the printed translation
+     * @param methodName the name of the verification method
+     * @return null if the source could not be parsed
+     */
+    public static @Nullable String slice(String source, String methodName) {
+        var result = new JavaParser().parse(source);
+        if (!result.isSuccessful() || result.getResult().isEmpty()) {
+            return null;
+        }
+        var cu = result.getResult().get();
+        List<BodyDeclaration> members = cu.findAll(BodyDeclaration.class,
+                it -> !(it instanceof TypeDeclaration) && it.getParentNode().orElse(null) instanceof TypeDeclaration);
+
+        var called = new HashSet<String>();
+        var mentioned = new HashSet<String>();
+        called.add(methodName);
+        for (BodyDeclaration<?> member : members) {
+            if (member instanceof MethodDeclaration m && m.getBody().isEmpty()) {
+                called.add(m.getNameAsString());
+            }
+        }
+        Set<BodyDeclaration<?>> kept = new LinkedHashSet<>();
+        boolean changed;
+        do {
+            changed = false;
+            for (BodyDeclaration<?> member : members) {
+                if (!kept.contains(member) && isNeeded(member, called, mentioned)) {
+                    kept.add(member);
+                    changed = true;
+                    member.findAll(MethodCallExpr.class).forEach(it -> called.add(it.getNameAsString()));
+                    member.findAll(MethodReferenceExpr.class).forEach(it -> called.add(it.getIdentifier()));
+                    member.findAll(NameExpr.class).forEach(it -> mentioned.add(it.getNameAsString()));
+                    member.findAll(FieldAccessExpr.class).forEach(it -> mentioned.add(it.getNameAsString()));
+                }
+            }
+        } while (changed);
+
+        var keptLines = new HashSet<Integer>();
+        kept.forEach(it -> lines(it).forEach(keptLines::add));
+        var lines = source.split("\n", -1);
+        for (BodyDeclaration<?> member : members) {
+            if (kept.contains(member)) {
+                continue;
+            }
+            var memberLines = lines(member);
+            if (memberLines.isEmpty() || memberLines.stream().anyMatch(keptLines::contains)) {
+                // shares a line with something that stays
+                continue;
+            }
+            memberLines.forEach(line -> lines[line - 1] = "");
+        }
+        return String.join("\n", lines);
+    }
+
+    private static boolean isNeeded(BodyDeclaration<?> member, Set<String> called, Set<String> mentioned) {
+        if (member instanceof MethodDeclaration m) {
+            var name = m.getNameAsString();
+            return called.contains(name) || m.getBody().isEmpty() || m.getAnnotationByName("Override").isPresent()
+                    || OBJECT_METHODS.contains(name);
+        }
+        if (member instanceof FieldDeclaration f) {
+            return f.getVariables().stream().anyMatch(it -> mentioned.contains(it.getNameAsString()) || hasSideEffects(it));
+        }
+        return true;
+    }
+
+    private static boolean hasSideEffects(VariableDeclarator variable) {
+        return variable.getInitializer().map(it -> it.findFirst(Node.class, node -> node instanceof MethodCallExpr
+                || node instanceof ObjectCreationExpr || node instanceof AssignExpr
+                || node instanceof UnaryExpr u && INCREMENTS.contains(u.getOperator())).isPresent()).orElse(false);
+    }
+
+    /**
+     * The lines of the member including its comment, or none if the parser did not record them.
+     */
+    private static List<Integer> lines(BodyDeclaration<?> member) {
+        var range = member.getRange().orElse(null);
+        if (range == null) {
+            return List.of();
+        }
+        int begin = member.getComment().flatMap(Node::getRange)
+                .map(it -> Math.min(it.begin.line, range.begin.line)).orElse(range.begin.line);
+        return IntStream.rangeClosed(begin, range.end.line).boxed().toList();
+    }
+}
@@ -0,0 +1,158 @@
+package jjbmc;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.resolution.TypeSolver;
+import com.github.javaparser.resolution.cache.Cache;
+import com.github.javaparser.resolution.declarations.ResolvedReferenceTypeDeclaration;
+import com.github.javaparser.resolution.model.SymbolReference;
+import com.github.javaparser.symbolsolver.cache.GuavaCache;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.CombinedTypeSolver;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.JavaParserTypeSolver;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.ReflectionTypeSolver;
+import com.google.common.cache.CacheBuilder;
+import org.jspecify.annotations.Nullable;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Type solvers that are shared by all translations of a {@link VerificationSession}.
+ * <p>
+ * The JRE layer is built once and never changes, so its answers are memoized. On top of it every workspace
+ * (the folder in which files are translated) gets a source layer, which keeps the parsed files of the workspace
+ * between translations. Whenever a file of the workspace is rewritten it has to be {@link #invalidate invalidated}.
+ * All methods are thread-safe; a workspace answers one query at a time.
+ */
+public class TypeSolverService {
+    private final TypeSolver jre = new MemoizingTypeSolver(new ReflectionTypeSolver());
+    private final Map<Path, Workspace> workspaces = new ConcurrentHashMap<>();
+
+    /**
+     * The type solver for the JRE alone.
+     */
+    public TypeSolver jre() {
+        return new DelegatingTypeSolver(jre);
+    }
+
+    /**
+     * The type solver for the sources in the given folder and the JRE.
+     */
+    public TypeSolver forWorkspace(Path folder) {
+        return new DelegatingTypeSolver(workspace(folder).solver);
+    }
+
+    /**
+     * Forgets everything that was derived from the given file of the workspace.
+     */
+    public void invalidate(Path folder, Path file) {
+        var workspace = workspaces.get(key(folder));
+        if (workspace != null) {
+            workspace.invalidate(file.toAbsolutePath().normalize());
+        }
+    }
+
+    /**
+     * Forgets the whole workspace, e.g. after its folder was deleted.
+     */
+    public void invalidate(Path folder) {
+        workspaces.remove(key(folder));
+    }
+
+    private Workspace workspace(Path folder) {
+        return workspaces.computeIfAbsent(key(folder), it -> new Workspace(it, jre));
+    }
+
+    private static Path key(Path folder) {
+        return folder.toAbsolutePath().normalize();
+    }
+
+    private static <K, V> Cache<K, V> softCache() {
+        return GuavaCache.create(CacheBuilder.newBuilder().softValues().build());
+    }
+
+    private static final class Workspace {
+        private final Cache<Path, Optional<CompilationUnit>> parsedFiles = softCache();
+        private final Cache<Path, List<CompilationUnit>> parsedDirectories = softCache();
+        private final Cache<String, SymbolReference<ResolvedReferenceTypeDeclaration>> foundTypes = softCache();
+        private final Cache<String, SymbolReference<ResolvedReferenceTypeDeclaration>> combinedTypes = softCache();
+        private final TypeSolver solver;
+
+        private Workspace(Path folder, TypeSolver jre) {
+            var sources = new JavaParserTypeSolver(folder, new JavaParser(new ParserConfiguration()),
+                    parsedFiles, parsedDirectories, foundTypes);
+            var combined = new CombinedTypeSolver(CombinedTypeSolver.ExceptionHandlers.IGNORE_NONE,
+                    List.of(sources, new DelegatingTypeSolver(jre)), combinedTypes);
+            solver = new SynchronizedTypeSolver(combined);
+            // declarations resolve their own references through the root, which has to take the lock as well
+            combined.setParent(solver);
+        }
+
+        private void invalidate(Path file) {
+            synchronized (solver) {
+                parsedFiles.remove(file);
+                // declarations found so far may point into the old version of the file
+                parsedDirectories.removeAll();
+                foundTypes.removeAll();
+                combinedTypes.removeAll();
+            }
+        }
+    }
+
+    /**
+     * A type solver can only have one parent. This delegate lets several combined solvers share one layer.
+     */
+    private static class DelegatingTypeSolver implements TypeSolver {
+        protected final TypeSolver delegate;
+        private @Nullable TypeSolver parent;
+
+        private DelegatingTypeSolver(TypeSolver delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public @Nullable TypeSolver getParent() {
+            return parent;
+        }
+
+        @Override
+        public void setParent(TypeSolver parent) {
+            this.parent = parent;
+        }
+
+        @Override
+        public SymbolReference<ResolvedReferenceTypeDeclaration> tryToSolveType(String name) {
+            return delegate.tryToSolveType(name);
+        }
+    }
+
+    private static final class SynchronizedTypeSolver extends DelegatingTypeSolver {
+        private SynchronizedTypeSolver(TypeSolver delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public SymbolReference<ResolvedReferenceTypeDeclaration> tryToSolveType(String name) {
+            synchronized (this) {
+                return delegate.tryToSolveType(name);
+            }
+        }
+    }
+
+    private static final class MemoizingTypeSolver extends DelegatingTypeSolver {
+        private final Map<String, SymbolReference<ResolvedReferenceTypeDeclaration>> solved = new ConcurrentHashMap<>();
+
+        private MemoizingTypeSolver(TypeSolver delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public SymbolReference<ResolvedReferenceTypeDeclaration> tryToSolveType(String name) {
+            return solved.computeIfAbsent(name, delegate::tryToSolveType);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package jjbmc;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.CallableDeclaration;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.body.ConstructorDeclaration;
+import com.github.javaparser.ast.body.FieldDeclaration;
+import com.github.javaparser.ast.body.InitializerDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import com.github.javaparser.ast.expr.MethodReferenceExpr;
+import com.github.javaparser.ast.expr.ObjectCreationExpr;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static jjbmc.ErrorLogger.debug;
+
+/**
+ * Stores the output of jbmc on disk, keyed by everything that can influence the verdict of a verification function:
+ * the translated method together with all methods, contract stubs and constructors it (transitively) calls,
+ * the fields and type headers of the file, the library files, the relevant options and the toolchain.
+ * <p>
+ * Callees are matched by name only, so an edit to any overload of a called method invalidates the entry.
+ * The raw xml output is stored, because traces can only be rendered with the {@link VerificationContext}
+ * of the current translation.
+ */
+public class VerdictCache {
+    private final Path folder;
+
+    public VerdictCache(Path folder) {
+        this.folder = folder;
+    }
+
+    /**
+     * The file with the cached xml output of jbmc, if there is one.
+     */
+    public Optional<Path> lookup(String key) {
+        var entry = folder.resolve(key + ".xml");
+        return Files.isRegularFile(entry) ? Optional.of(entry) : Optional.empty();
+    }
+
+    /**
+     * Stores a copy of the given file with the xml output of jbmc.
+     */
+    public void store(String key, Path xmlOutput) {
+        try {
+            Files.createDirectories(folder);
+            var tmp = Files.createTempFile(folder, key, ".tmp");
+            Files.copy(xmlOutput, tmp, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(tmp, folder.resolve(key + ".xml"), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            debug("Could not store verdict %s: %s", key, e.getMessage());
+        }
+    }
+
+    /**
+     * Computes the cache key of the given verification function.
+     *
+     * @param translation  the translated compilation unit that contains the function
+     * @param functionName the function name as it is passed to jbmc
+     * @param unwind       the unwind bound passed to jbmc
+     * @param jbmcOptions  the additional options passed to jbmc
+     * @param toolchain    the fingerprint of jbmc and the compiler, see {@link VerificationSession#toolchainFingerprint}
+     */
+    public static String key(CompilationUnit translation, String functionName, int unwind, JJBMCOptions options,
+                             List<String> jbmcOptions, String toolchain) throws IOException {
+        var digest = new Digest();
+        digest.add("toolchain", toolchain);
+        digest.add("function", functionName);
+        digest.add("unwind", String.valueOf(unwind));
+        digest.add("maxArraySize", String.valueOf(options.getMaxArraySize()));
+        digest.add("jbmcOptions", String.join(" ", jbmcOptions));
+        digest.add("inlining", options.forceInlining + " " + options.forceInliningLoops + " " + options.forceInliningMethods
+                + " " + options.proofPreconditions);
+
+        translation.getPackageDeclaration().ifPresent(it -> digest.add("package", it.toString()));
+        translation.getImports().forEach(it -> digest.add("import", it.toString()));
+        for (TypeDeclaration<?> type : translation.findAll(TypeDeclaration.class)) {
+            digest.add("type", header(type));
+        }
+        translation.findAll(FieldDeclaration.class).forEach(it -> digest.add("field", it.toString()));
+        translation.findAll(InitializerDeclaration.class).forEach(it -> digest.add("initializer", it.toString()));
+        for (CallableDeclaration<?> callable : reachableCallables(translation, methodName(functionName))) {
+            digest.add("callable", callable.toString());
+        }
+        for (String libFile : options.libFiles) {
+            digest.add("lib", Files.readString(options.getFileName().resolveSibling(libFile)));
+        }
+        return digest.hex();
+    }
+
+    /**
+     * Extracts the plain method name from a jbmc function name such as {@code "pkg.A.fooVerification:(I)V"}
+     * or a declaration such as {@code void fooVerification(int a)}.
+     */
+    static String methodName(String functionName) {
+        var name = functionName.replace("\"", "");
+        int end = name.length();
+        for (char c : new char[]{'(', ':'}) {
+            if (name.indexOf(c) >= 0) {
+                end = Math.min(end, name.indexOf(c));
+            }
+        }
+        name = name.substring(0, end).trim();
+        return name.substring(Math.max(name.lastIndexOf(' '), name.lastIndexOf('.')) + 1);
+    }
+
+    private static String header(TypeDeclaration<?> type) {
+        var sb = new StringBuilder(type.getModifiers().toString()).append(type.getNameAsString());
+        if (type instanceof ClassOrInterfaceDeclaration c) {
+            sb.append(c.getTypeParameters()).append(c.getExtendedTypes()).append(c.getImplementedTypes());
+        }
+        return sb.toString();
+    }
+
+    static Set<CallableDeclaration<?>> reachableCallables(CompilationUnit cu, String methodName) {
+        List<CallableDeclaration> callables = cu.findAll(CallableDeclaration.class);
+        Set<CallableDeclaration<?>> reachable = new LinkedHashSet<>();
+        Set<String> seenNames = new HashSet<>();
+        var todo = new ArrayDeque<String>();
+        todo.add(methodName);
+        while (!todo.isEmpty()) {
+            var name = todo.poll();
+            if (!seenNames.add(name)) {
+                continue;
+            }
+            for (CallableDeclaration<?> callable : callables) {
+                boolean matches = "<init>".equals(name)
+                        ? callable instanceof ConstructorDeclaration
+                        : callable.getNameAsString().equals(name);
+                if (matches && reachable.add(callable)) {
+                    enqueueCallees(callable, todo);
+                }
+            }
+        }
+        return reachable;
+    }
+
+    private static void enqueueCallees(Node node, ArrayDeque<String> todo) {
+        node.findAll(MethodCallExpr.class).forEach(it -> todo.add(it.getNameAsString()));
+        // Foo::bar, or Foo::new for a constructor
+        node.findAll(MethodReferenceExpr.class).forEach(it -> todo.add("new".equals(it.getIdentifier()) ? "<init>" : it.getIdentifier()));
+        if (!node.findAll(ObjectCreationExpr.class).isEmpty()) {
+            todo.add("<init>");
+        }
+    }
+
+    private static final class Digest {
+        private final MessageDigest sha;
+
+        private Digest() {
+            try {
+                sha = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        void add(String kind, String value) {
+            // length prefixes keep different splits of the same text apart
+            var bytes = value.getBytes(StandardCharsets.UTF_8);
+            sha.update((kind + ":" + bytes.length + ":").getBytes(StandardCharsets.UTF_8));
+            sha.update(bytes);
+        }
+
+        String hex() {
+            return HexFormat.of().formatHex(sha.digest());
+        }
+    }
+}
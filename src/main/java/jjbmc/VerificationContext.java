@@ -0,0 +1,110 @@
+package jjbmc;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.resolution.types.ResolvedType;
+import jjbmc.trace.TraceInformation;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import org.jspecify.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * State of a single verification run, shared by the translation and the parsing of jbmc's output.
+ * Every translated file gets its own context, so several files and functions can be handled concurrently in one JVM.
+ */
+@Getter
+@RequiredArgsConstructor
+public class VerificationContext {
+    private final JJBMCOptions options;
+    private final TraceInformation traceInformation = new TraceInformation();
+    /**
+     * Source of unique suffixes for generated variable names.
+     */
+    private final AtomicInteger counter = new AtomicInteger();
+    /**
+     * Shared by all contexts of a run, as the context is replaced whenever the file is translated again.
+     */
+    private final Metrics metrics;
+    /**
+     * The method that is currently rewritten. Detached expressions are attached to it for type resolution.
+     */
+    @Setter
+    private @Nullable Node currentNode;
+    /**
+     * The translated compilation unit, as it is handed to javac and jbmc.
+     */
+    @Setter
+    private @Nullable CompilationUnit translation;
+    /**
+     * The printed translation, whose lines the {@link #getTraceInformation() trace information} refers to.
+     */
+    @Setter
+    private @Nullable String translationSource;
+    /**
+     * The verification methods created by the translation, in the order of the source file.
+     */
+    private final List<VerificationTarget> targets = new ArrayList<>();
+    /**
+     * The translation asks for the types of the same contract expressions again and again, e.g. for every call of a
+     * method whose assignable clause has to be havoced.
+     */
+    @Getter(AccessLevel.NONE)
+    private final Map<ResolutionKey, ResolvedType> resolvedTypes = new HashMap<>();
+
+    public VerificationContext(JJBMCOptions options) {
+        this(options, new Metrics());
+    }
+
+    public int nextId() {
+        return counter.getAndIncrement();
+    }
+
+    /**
+     * The verified file as it is tagged in the {@link #getMetrics() metrics}.
+     */
+    public String fileLabel() {
+        return Objects.toString(options.getFileName(), "");
+    }
+
+    /**
+     * The type of the expression, cached per expression node and the method that is currently translated.
+     */
+    public ResolvedType resolveType(Expression expression) {
+        var key = new ResolutionKey(expression, currentNode, expression.toString());
+        var type = resolvedTypes.get(key);
+        if (type == null) {
+            type = expression.calculateResolvedType();
+            resolvedTypes.put(key, type);
+        }
+        return type;
+    }
+
+    public void addTarget(VerificationTarget target) {
+        targets.add(target);
+    }
+
+    /**
+     * Compares nodes by identity: equal but distinct nodes can be in different scopes.
+     */
+    private record ResolutionKey(Node expression, @Nullable Node scope, String text) {
+        @Override
+        public boolean equals(@Nullable Object o) {
+            return o instanceof ResolutionKey k && k.expression == expression && k.scope == scope && k.text.equals(text);
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(expression) * 31 + text.hashCode();
+        }
+    }
+}
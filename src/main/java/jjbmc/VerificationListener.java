@@ -0,0 +1,17 @@
+package jjbmc;
+
+import java.nio.file.Path;
+
+/**
+ * Gets notified about the result of every verification function as soon as it is done, one result at a time.
+ */
+@FunctionalInterface
+public interface VerificationListener {
+    /**
+     * Called before the file is translated; all following results belong to it.
+     */
+    default void onStart(Path file) {
+    }
+
+    void onResult(VerificationResult result);
+}
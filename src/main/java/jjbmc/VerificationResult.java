@@ -0,0 +1,52 @@
+package jjbmc;
+
+import lombok.Data;
+import org.jspecify.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The outcome of a single jbmc invocation for one verification function.
+ */
+@Data
+public class VerificationResult {
+    public enum Status {
+        DONE,
+        TIMEOUT,
+        ERROR
+    }
+
+    private final String functionName;
+    private Status status = Status.DONE;
+    private @Nullable JBMCOutput output;
+    private long time;
+    /**
+     * The CPU time and memory of the jbmc calls for the function, null if jbmc was not run.
+     */
+    private @Nullable ResourceUsage resources;
+    /**
+     * The unwind bound jbmc was run with.
+     */
+    private int unwind;
+    /**
+     * Whether the output was taken from the {@link VerdictCache} instead of running jbmc.
+     */
+    private boolean cached;
+    /**
+     * The jbmc options of the portfolio configuration that produced the verdict, if the function was raced.
+     */
+    private @Nullable String configuration;
+    /**
+     * The result of the sanity check harness of the same function, if one was run.
+     */
+    private @Nullable VerificationResult sanityCheck;
+    /**
+     * With -perProperty: the properties whose jbmc call timed out or failed, so they have no verdict.
+     */
+    private List<String> unknownProperties = new ArrayList<>();
+
+    public VerificationResult(String functionName) {
+        this.functionName = functionName;
+    }
+}
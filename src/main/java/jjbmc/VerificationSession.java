@@ -0,0 +1,125 @@
+package jjbmc;
+
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.symbolsolver.JavaSymbolSolver;
+import com.google.common.collect.ImmutableList;
+import org.jspecify.annotations.Nullable;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resources that are expensive to set up and are shared by all verification runs in one JVM:
+ * the type solvers (see {@link TypeSolverService}), the system java compiler, the compiled support classes
+ * and the probes of jbmc and javac (see {@link Toolchain}), which also persist across JVMs.
+ * Everything that belongs to a single run lives in {@link VerificationContext}.
+ */
+public class VerificationSession {
+    private static final VerificationSession DEFAULT = new VerificationSession();
+
+    private final TypeSolverService typeSolvers = new TypeSolverService();
+    private final @Nullable JavaCompiler javaCompiler = ToolProvider.getSystemJavaCompiler();
+    private final Map<String, Boolean> verifiedJbmcBinaries = new ConcurrentHashMap<>();
+    private final Toolchain toolchain;
+    /**
+     * The class files of the support sources, empty if they do not compile on their own.
+     */
+    private final Map<String, Optional<Map<String, byte[]>>> supportClasses = new ConcurrentHashMap<>();
+
+    public VerificationSession() {
+        this(new Toolchain(Toolchain.defaultCacheFile()));
+    }
+
+    public VerificationSession(Toolchain toolchain) {
+        this.toolchain = toolchain;
+    }
+
+    public static VerificationSession getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Creates a parser configuration for JML annotated files, which resolves symbols against the given source folder
+     * and the (shared) JRE.
+     */
+    public ParserConfiguration createParserConfiguration(Path sourceFolder) {
+        ParserConfiguration config = new ParserConfiguration();
+        config.setJmlKeys(ImmutableList.of(ImmutableList.of("openjml")));
+        config.setProcessJml(true);
+        config.setSymbolResolver(new JavaSymbolSolver(typeSolvers.forWorkspace(sourceFolder)));
+        return config;
+    }
+
+    public TypeSolverService getTypeSolvers() {
+        return typeSolvers;
+    }
+
+    public @Nullable JavaCompiler getJavaCompiler() {
+        return javaCompiler;
+    }
+
+    public Toolchain getToolchain() {
+        return toolchain;
+    }
+
+    /**
+     * Checks the version of the given jbmc binary, once per binary.
+     */
+    public boolean verifyJbmc(String jbmcBin, boolean isWindows) {
+        var jbmc = toolchain.jbmc(jbmcBin, isWindows);
+        return verifiedJbmcBinaries.computeIfAbsent(jbmc.fingerprint(), it -> JbmcFacade.verifyJBMCVersion(jbmc));
+    }
+
+    /**
+     * Compiles the sources every translation depends on ({@code CProver} and the library files) once and
+     * returns the class files by binary name. Returns null if they cannot be compiled on their own.
+     */
+    public @Nullable Map<String, byte[]> compileSupportClasses(Map<String, String> sources) {
+        var key = new StringBuilder();
+        sources.forEach((name, source) -> key.append(name).append('\0').append(source).append('\0'));
+        var javac = javaCompiler;
+        if (javac == null) {
+            return null;
+        }
+        try {
+            return supportClasses.computeIfAbsent(key.toString(), it -> {
+                try {
+                    // a failure is remembered as well, every later run would fail the same way
+                    var result = new InMemoryCompiler(javac).compile(sources, Map.of());
+                    return result.success() ? Optional.of(result.classes()) : Optional.empty();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }).orElse(null);
+        } catch (UncheckedIOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Identifies the tools that produce a verdict: jbmc and the compiler of the translation, which is the system
+     * java compiler if there is one and javac otherwise.
+     */
+    public String toolchainFingerprint(JJBMCOptions options) {
+        var compiler = javaCompiler != null
+                ? "javax.tools " + Runtime.version()
+                : toolchain.javac(options.javacBin, options.isWindows()).fingerprint();
+        return "jbmc " + toolchain.jbmc(options.jbmcBin, options.isWindows()).fingerprint() + "; javac " + compiler;
+    }
+
+    /**
+     * Loads the classes needed by nearly every translation, so that the first run does not pay for it.
+     */
+    public void warmUp() {
+        for (String name : List.of("java.lang.Object", "java.lang.String", "java.lang.Integer", "java.lang.Exception")) {
+            typeSolvers.jre().tryToSolveType(name);
+        }
+    }
+}
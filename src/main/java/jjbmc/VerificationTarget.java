@@ -0,0 +1,42 @@
+package jjbmc;
+
+import org.jspecify.annotations.Nullable;
+
+import java.util.Objects;
+
+/**
+ * A verification method created by the translation.
+ *
+ * @param className   the binary name of the declaring class, e.g. {@code pkg.Outer$Inner}
+ * @param methodName  the name of the verification method, e.g. {@code sortVerification}
+ * @param descriptor  the JVM method descriptor, e.g. {@code ([I)V}, or null if the parameter types could not be resolved
+ * @param sanityCheck whether this is the harness that checks the assumptions of the method for consistency
+ */
+public record VerificationTarget(String className, String methodName, @Nullable String descriptor, boolean sanityCheck) {
+    public static final String VERIFICATION_SUFFIX = "Verification";
+    public static final String SANITY_CHECK_SUFFIX = "SanityCheck";
+
+    /**
+     * The function name as it is passed to jbmc's {@code --function} option.
+     */
+    public String functionName() {
+        var name = className + "." + methodName;
+        return descriptor == null ? name : name + ":" + descriptor;
+    }
+
+    /**
+     * The name of the method in the source file this harness was created for.
+     */
+    public String sourceMethodName() {
+        var suffix = sanityCheck ? SANITY_CHECK_SUFFIX : VERIFICATION_SUFFIX;
+        return methodName.endsWith(suffix) ? methodName.substring(0, methodName.length() - suffix.length()) : methodName;
+    }
+
+    /**
+     * Whether this is the sanity check belonging to the given verification target.
+     */
+    public boolean isSanityCheckOf(VerificationTarget other) {
+        return sanityCheck && !other.sanityCheck && className.equals(other.className)
+                && sourceMethodName().equals(other.sourceMethodName()) && Objects.equals(descriptor, other.descriptor);
+    }
+}
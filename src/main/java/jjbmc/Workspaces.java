@@ -0,0 +1,75 @@
+package jjbmc;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static jjbmc.ErrorLogger.*;
+
+/**
+ * Every run translates and runs jbmc in its own workspace below a root folder, so runs on files in the same
+ * directory do not interfere. A workspace is removed by moving it aside, which is a single rename, and deleting it
+ * in the background. Whatever is left over when the JVM exits is removed by the next run in the same root.
+ */
+public final class Workspaces {
+    private static final String DELETED_SUFFIX = ".deleted";
+    private static final Set<Path> sweptRoots = ConcurrentHashMap.newKeySet();
+
+    private Workspaces() {
+    }
+
+    /**
+     * Creates a new, empty workspace named after the given file.
+     */
+    public static Path create(Path root, String name) {
+        try {
+            Files.createDirectories(root);
+            if (sweptRoots.add(root.toAbsolutePath().normalize())) {
+                sweep(root);
+            }
+            return Files.createTempDirectory(root, name + "-");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create a workspace in " + root, e);
+        }
+    }
+
+    /**
+     * Removes the workspace without waiting for its files to be deleted.
+     */
+    public static void deleteLater(Path workspace) {
+        if (!Files.exists(workspace)) {
+            return;
+        }
+        Path trash = workspace.resolveSibling(workspace.getFileName() + DELETED_SUFFIX);
+        try {
+            Files.move(workspace, trash, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // e.g. a file is still open on Windows; delete what can be deleted in place
+            trash = workspace;
+        }
+        var folder = trash;
+        Thread.ofVirtual().name("jjbmc-cleanup").start(() -> delete(folder));
+    }
+
+    private static void sweep(Path root) throws IOException {
+        try (var entries = Files.list(root)) {
+            var leftovers = entries.filter(it -> it.getFileName().toString().endsWith(DELETED_SUFFIX)).toList();
+            if (!leftovers.isEmpty()) {
+                debug("Deleting %d workspaces left over in %s", leftovers.size(), root);
+                Thread.ofVirtual().name("jjbmc-cleanup").start(() -> leftovers.forEach(Workspaces::delete));
+            }
+        }
+    }
+
+    private static void delete(Path folder) {
+        try {
+            Operations.deleteFolder(folder, true);
+        } catch (IOException e) {
+            debug("Could not delete %s: %s", folder, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package jjbmc.distributed;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * The part of a workspace jbmc needs, i.e. its class files, as a zip archive. The id is the hash of the archive, so
+ * workers can keep bundles and identical workspaces share one.
+ */
+record Bundle(String id, byte[] content) {
+    static Bundle pack(Path workspace) throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        try (var zip = new ZipOutputStream(bytes);
+             var walk = Files.walk(workspace)) {
+            // sorted, so the same class files give the same id
+            for (Path file : walk.filter(it -> it.getFileName().toString().endsWith(".class"))
+                    .filter(Files::isRegularFile).sorted().toList()) {
+                var entry = new ZipEntry(workspace.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/"));
+                entry.setTime(0);
+                zip.putNextEntry(entry);
+                Files.copy(file, zip);
+                zip.closeEntry();
+            }
+        }
+        var content = bytes.toByteArray();
+        return new Bundle(hash(content), content);
+    }
+
+    private static String hash(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content), 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Extracts the archive into the folder. Entries that would end up outside of it are rejected.
+     */
+    static void unpack(byte[] content, Path folder) throws IOException {
+        var root = folder.toAbsolutePath().normalize();
+        try (var zip = new ZipInputStream(new ByteArrayInputStream(content))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                var file = root.resolve(entry.getName()).normalize();
+                if (!file.startsWith(root)) {
+                    throw new IOException("Bundle entry outside of the workspace: " + entry.getName());
+                }
+                if (entry.isDirectory()) {
+                    Files.createDirectories(file);
+                    continue;
+                }
+                Files.createDirectories(file.getParent());
+                Files.copy(zip, file);
+            }
+        }
+    }
+}
@@ -0,0 +1,330 @@
+package jjbmc.distributed;
+
+import com.google.gson.JsonArray;
+import jjbmc.JbmcCall;
+import jjbmc.JbmcLauncher;
+import jjbmc.JbmcProcess;
+import org.jspecify.annotations.Nullable;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static jjbmc.ErrorLogger.*;
+
+/**
+ * Hands the jbmc calls of one or more runs to {@link Worker}s, which connect over TCP. The translation is done
+ * here; a worker receives the class files of a workspace once, as a {@link Bundle}, runs jbmc and sends its xml
+ * output back, which is then read as if jbmc had run locally.
+ * <p>
+ * Jobs are distributed by a {@link JobQueue}, so the jobs of a file stay on one worker as long as the others have
+ * enough to do. A worker that closes the connection or does not send a heartbeat for {@link Protocol#DEAD_AFTER} ms
+ * is dropped and its jobs are queued again, up to {@link #MAX_ATTEMPTS} times per job.
+ */
+public class Coordinator implements JbmcLauncher, AutoCloseable {
+    static final int MAX_ATTEMPTS = 3;
+
+    private final ServerSocket server;
+    private final @Nullable String token;
+    private final JobQueue<RemoteCall<?>> queue = new JobQueue<>(it -> it.bundle);
+    private final Map<Path, Bundle> bundles = new ConcurrentHashMap<>();
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+    private final AtomicLong ids = new AtomicLong();
+    private volatile boolean closed;
+    private volatile boolean waitingReported;
+
+    /**
+     * Listens on the given address for workers.
+     *
+     * @param token if not null, workers have to present it; required unless the address is a loopback address,
+     *              as any host that reaches the port could otherwise send the results of the jbmc calls
+     */
+    public Coordinator(InetSocketAddress address, @Nullable String token) throws IOException {
+        var host = address.getAddress();
+        if (token == null && (host == null || !host.isLoopbackAddress())) {
+            throw new IllegalArgumentException("A token (-tk) is required to accept workers on " + address
+                    + ", use a loopback address such as localhost:" + address.getPort() + " to run without one");
+        }
+        this.token = token;
+        server = new ServerSocket();
+        server.bind(address);
+        info("Coordinator waiting for workers on %s", server.getLocalSocketAddress());
+        Thread.ofVirtual().name("jjbmc-coordinator").start(this::accept);
+    }
+
+    /**
+     * Parses {@code [host:]port}; without a host all interfaces are used, which requires a token.
+     */
+    public static InetSocketAddress address(String address) {
+        int colon = address.lastIndexOf(':');
+        if (colon < 0) {
+            return new InetSocketAddress(Integer.parseInt(address));
+        }
+        return new InetSocketAddress(address.substring(0, colon), Integer.parseInt(address.substring(colon + 1)));
+    }
+
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    public int getWorkers() {
+        return connections.size();
+    }
+
+    @Override
+    public <T> JbmcCall<T> start(List<String> arguments, Path workspace, int timeout, JbmcProcess.OutputReader<T> reader)
+            throws IOException {
+        if (closed) {
+            throw new IOException("The coordinator is closed");
+        }
+        Bundle bundle;
+        try {
+            bundle = bundles.computeIfAbsent(workspace.toAbsolutePath().normalize(), it -> {
+                try {
+                    return Bundle.pack(it);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        var call = new RemoteCall<>(this, ids.incrementAndGet(), bundle.id(), List.copyOf(arguments), timeout, reader);
+        if (connections.isEmpty() && !waitingReported) {
+            waitingReported = true;
+            info("No worker is connected yet, the jbmc calls wait for one.");
+        }
+        queue.add(call);
+        return call;
+    }
+
+    /**
+     * Forgets the bundle of the workspace and tells the workers to delete it, unless another workspace has the same.
+     */
+    @Override
+    public void release(Path workspace) {
+        var bundle = bundles.remove(workspace.toAbsolutePath().normalize());
+        if (bundle == null || bundles.values().stream().anyMatch(it -> it.id().equals(bundle.id()))) {
+            return;
+        }
+        for (Connection connection : connections) {
+            if (connection.sent.remove(bundle.id())) {
+                connection.trySend(new Protocol.Message("release").with("bundle", bundle.id()));
+            }
+        }
+    }
+
+    void cancel(RemoteCall<?> call) {
+        if (queue.remove(call)) {
+            return;
+        }
+        if (call.worker instanceof Connection connection) {
+            connection.trySend(new Protocol.Message("cancel").with("job", call.id));
+        }
+    }
+
+    private void accept() {
+        while (!closed) {
+            try {
+                var socket = server.accept();
+                Thread.ofVirtual().name("jjbmc-worker-connection").start(() -> new Connection(socket).run());
+            } catch (IOException e) {
+                if (!closed) {
+                    error("Coordinator stopped accepting workers: %s", e.getMessage());
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Tells the workers to shut down. Calls that are still queued end without a result.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        queue.close();
+        for (RemoteCall<?> call : queue.pending()) {
+            call.fail("The coordinator was closed before a worker ran the call");
+        }
+        for (Connection connection : connections) {
+            connection.trySend(new Protocol.Message("shutdown"));
+        }
+        server.close();
+    }
+
+    private final class Connection {
+        private final Socket socket;
+        private final Map<Long, RemoteCall<?>> running = new ConcurrentHashMap<>();
+        /**
+         * The bundles this worker has.
+         */
+        private final Set<String> sent = ConcurrentHashMap.newKeySet();
+        private @Nullable DataOutputStream out;
+        private Semaphore slots = new Semaphore(0);
+        private String name;
+
+        Connection(Socket socket) {
+            this.socket = socket;
+            this.name = String.valueOf(socket.getRemoteSocketAddress());
+        }
+
+        void run() {
+            @Nullable Thread dispatcher = null;
+            try (socket) {
+                socket.setSoTimeout(Protocol.DEAD_AFTER);
+                var in = Protocol.input(socket.getInputStream());
+                out = Protocol.output(socket.getOutputStream());
+                var hello = Protocol.read(in);
+                var header = hello.header();
+                if (!hello.type().equals("hello")
+                        || token != null && !(header.has("token") && token.equals(header.get("token").getAsString()))) {
+                    warn("Rejected worker %s: missing or wrong token.", name);
+                    return;
+                }
+                if (header.has("name")) {
+                    name = header.get("name").getAsString() + " (" + name + ")";
+                }
+                slots = new Semaphore(Math.max(1, header.get("slots").getAsInt()));
+                connections.add(this);
+                queue.register(this);
+                info("Worker %s connected with %d slots.", name, slots.availablePermits());
+                dispatcher = Thread.ofVirtual().name("jjbmc-dispatch").start(this::dispatch);
+                receive(in);
+            } catch (IOException e) {
+                debug("Connection to worker %s: %s", name, e.getMessage());
+            } finally {
+                lost(dispatcher);
+            }
+        }
+
+        /**
+         * Sends the worker a job whenever it has a free slot.
+         */
+        private void dispatch() {
+            try {
+                while (true) {
+                    slots.acquire();
+                    var call = queue.take(this);
+                    if (call == null) {
+                        return;
+                    }
+                    call.worker = this;
+                    call.attempts++;
+                    running.put(call.id, call);
+                    if (call.isCancelled()) {
+                        running.remove(call.id);
+                        slots.release();
+                        continue;
+                    }
+                    var bundle = bundles.values().stream().filter(it -> it.id().equals(call.bundle)).findFirst();
+                    if (bundle.isEmpty()) {
+                        running.remove(call.id);
+                        slots.release();
+                        call.fail("The workspace of the call was released");
+                        continue;
+                    }
+                    if (sent.add(call.bundle)) {
+                        send(new Protocol.Message("bundle").with("id", call.bundle).with(bundle.get().content()));
+                    }
+                    var job = new Protocol.Message("job").with("id", call.id).with("bundle", call.bundle)
+                            .with("timeout", call.timeout);
+                    var arguments = new JsonArray();
+                    call.arguments.forEach(arguments::add);
+                    job.header().add("arguments", arguments);
+                    send(job);
+                }
+            } catch (InterruptedException e) {
+                // the worker is gone
+            } catch (IOException e) {
+                debug("Could not send to worker %s: %s", name, e.getMessage());
+                try {
+                    // the receiving side notices and requeues the jobs
+                    socket.close();
+                } catch (IOException ignored) {
+                    // closed already
+                }
+            }
+        }
+
+        private void receive(DataInputStream in) throws IOException {
+            while (true) {
+                var message = Protocol.read(in);
+                switch (message.type()) {
+                    case "heartbeat" -> {
+                    }
+                    case "result" -> {
+                        var call = running.remove(message.header().get("job").getAsLong());
+                        if (call != null) {
+                            slots.release();
+                            call.complete(message);
+                        }
+                    }
+                    default -> debug("Unexpected message from worker %s: %s", name, message.type());
+                }
+            }
+        }
+
+        private void lost(@Nullable Thread dispatcher) {
+            if (!connections.remove(this)) {
+                return;
+            }
+            queue.unregister(this);
+            if (dispatcher != null) {
+                // a job the dispatcher took in the meantime is in running afterwards
+                dispatcher.interrupt();
+                try {
+                    dispatcher.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            int requeued = 0;
+            for (RemoteCall<?> call : running.values()) {
+                call.worker = null;
+                if (call.isCancelled()) {
+                    continue;
+                }
+                if (closed) {
+                    call.fail("The coordinator was closed while a worker ran the call");
+                } else if (call.attempts >= MAX_ATTEMPTS) {
+                    call.fail("The call was lost with " + call.attempts + " workers");
+                } else {
+                    queue.retry(call);
+                    requeued++;
+                }
+            }
+            running.clear();
+            if (!closed) {
+                warn("Lost worker %s, %d jobs are queued again.", name, requeued);
+            }
+        }
+
+        void send(Protocol.Message message) throws IOException {
+            var out = Objects.requireNonNull(this.out);
+            synchronized (out) {
+                Protocol.write(out, message);
+            }
+        }
+
+        void trySend(Protocol.Message message) {
+            try {
+                send(message);
+            } catch (IOException e) {
+                debug("Could not send to worker %s: %s", name, e.getMessage());
+            }
+        }
+    }
+}
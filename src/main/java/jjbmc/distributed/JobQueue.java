@@ -0,0 +1,134 @@
+package jjbmc.distributed;
+
+import org.jspecify.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * The jobs of a distributed run, shared by the connections to the workers.
+ * <p>
+ * New jobs go to a shared queue. A worker without jobs of its own takes the first shared job, preferring one whose
+ * bundle it already has, and claims all other shared jobs of that bundle into its own deque, so the bundle is only
+ * sent to one worker. A worker with an empty deque and nothing shared left steals from the tail of the fullest deque
+ * of another worker. The jobs claimed by a worker that is gone are put back in front of the shared queue.
+ *
+ * @param <J> the jobs
+ */
+final class JobQueue<J> {
+    private final Function<J, String> bundleOf;
+    private final Deque<J> shared = new ArrayDeque<>();
+    private final Map<Object, Deque<J>> claimed = new LinkedHashMap<>();
+    private final Map<Object, Set<String>> bundles = new HashMap<>();
+    private boolean closed;
+
+    JobQueue(Function<J, String> bundleOf) {
+        this.bundleOf = bundleOf;
+    }
+
+    synchronized void register(Object worker) {
+        claimed.put(worker, new ArrayDeque<>());
+        bundles.put(worker, new HashSet<>());
+        notifyAll();
+    }
+
+    /**
+     * Removes the worker and puts the jobs it claimed but did not take back in front of the shared queue.
+     */
+    synchronized void unregister(Object worker) {
+        var jobs = claimed.remove(worker);
+        bundles.remove(worker);
+        if (jobs != null) {
+            jobs.descendingIterator().forEachRemaining(shared::addFirst);
+        }
+        notifyAll();
+    }
+
+    synchronized void add(J job) {
+        shared.addLast(job);
+        notifyAll();
+    }
+
+    /**
+     * Queues a job again that was taken by a worker which is gone, before all other jobs.
+     */
+    synchronized void retry(J job) {
+        shared.addFirst(job);
+        notifyAll();
+    }
+
+    /**
+     * Removes a job that has not been taken yet. Returns false if it was taken already.
+     */
+    synchronized boolean remove(J job) {
+        if (shared.remove(job)) {
+            return true;
+        }
+        return claimed.values().stream().anyMatch(it -> it.remove(job));
+    }
+
+    /**
+     * Waits for the next job of the worker. Returns null if the queue is closed or the worker was unregistered.
+     */
+    synchronized @Nullable J take(Object worker) throws InterruptedException {
+        while (!closed && claimed.containsKey(worker)) {
+            var job = next(worker);
+            if (job != null) {
+                bundles.get(worker).add(bundleOf.apply(job));
+                return job;
+            }
+            wait();
+        }
+        return null;
+    }
+
+    private @Nullable J next(Object worker) {
+        var own = claimed.get(worker);
+        if (!own.isEmpty()) {
+            return own.pollFirst();
+        }
+        if (!shared.isEmpty()) {
+            var known = bundles.get(worker);
+            var first = shared.stream().filter(it -> known.contains(bundleOf.apply(it))).findFirst()
+                    .orElse(shared.getFirst());
+            shared.remove(first);
+            var bundle = bundleOf.apply(first);
+            for (var it = shared.iterator(); it.hasNext(); ) {
+                var job = it.next();
+                if (bundleOf.apply(job).equals(bundle)) {
+                    it.remove();
+                    own.addLast(job);
+                }
+            }
+            return first;
+        }
+        return claimed.entrySet().stream()
+                .filter(it -> it.getKey() != worker && !it.getValue().isEmpty())
+                .max(Comparator.comparingInt(it -> it.getValue().size()))
+                .map(it -> it.getValue().pollLast())
+                .orElse(null);
+    }
+
+    /**
+     * The jobs that have not been taken yet.
+     */
+    synchronized List<J> pending() {
+        var pending = new ArrayList<>(shared);
+        claimed.values().forEach(pending::addAll);
+        return pending;
+    }
+
+    synchronized void close() {
+        closed = true;
+        notifyAll();
+    }
+}
@@ -0,0 +1,112 @@
+package jjbmc.distributed;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The messages between the coordinator and its workers. A message is a JSON header with a {@code type} and an
+ * optional binary payload, each preceded by its length:
+ * <ul>
+ *     <li>worker to coordinator: {@code hello} (slots, token), {@code heartbeat} and {@code result} (job, exit value,
+ *     time and resources; the gzipped xml output of jbmc as payload)</li>
+ *     <li>coordinator to worker: {@code bundle} (id; the zipped class files as payload), {@code job} (id, bundle,
+ *     arguments, timeout), {@code cancel} (job), {@code release} (bundle) and {@code shutdown}</li>
+ * </ul>
+ */
+final class Protocol {
+    /**
+     * How often a worker sends a heartbeat, in ms. A worker that is silent for {@link #DEAD_AFTER} ms is dead.
+     */
+    static final int HEARTBEAT_INTERVAL = 5_000;
+    static final int DEAD_AFTER = 6 * HEARTBEAT_INTERVAL;
+    private static final int MAX_SIZE = 1 << 30;
+    private static final byte[] NO_PAYLOAD = new byte[0];
+
+    record Message(JsonObject header, byte[] payload) {
+        Message(String type) {
+            this(header(type), NO_PAYLOAD);
+        }
+
+        String type() {
+            return header.get("type").getAsString();
+        }
+
+        Message with(String key, String value) {
+            header.addProperty(key, value);
+            return this;
+        }
+
+        Message with(String key, Number value) {
+            header.addProperty(key, value);
+            return this;
+        }
+
+        Message with(String key, boolean value) {
+            header.addProperty(key, value);
+            return this;
+        }
+
+        Message with(byte[] payload) {
+            return new Message(header, payload);
+        }
+
+        private static JsonObject header(String type) {
+            var header = new JsonObject();
+            header.addProperty("type", type);
+            return header;
+        }
+    }
+
+    private Protocol() {
+    }
+
+    /**
+     * Writes the message, callers synchronize on the stream if several threads send.
+     */
+    static void write(DataOutputStream out, Message message) throws IOException {
+        var header = message.header().toString().getBytes(StandardCharsets.UTF_8);
+        out.writeInt(header.length);
+        out.write(header);
+        out.writeInt(message.payload().length);
+        out.write(message.payload());
+        out.flush();
+    }
+
+    static Message read(DataInputStream in) throws IOException {
+        var header = JsonParser.parseString(new String(readBlock(in), StandardCharsets.UTF_8)).getAsJsonObject();
+        if (!header.has("type")) {
+            throw new IOException("Message without type: " + header);
+        }
+        return new Message(header, readBlock(in));
+    }
+
+    private static byte[] readBlock(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_SIZE) {
+            throw new IOException("Invalid message length " + length);
+        }
+        var block = in.readNBytes(length);
+        if (block.length != length) {
+            throw new EOFException("Connection closed in the middle of a message");
+        }
+        return block;
+    }
+
+    static DataInputStream input(InputStream in) {
+        return new DataInputStream(new BufferedInputStream(in));
+    }
+
+    static DataOutputStream output(OutputStream out) {
+        return new DataOutputStream(new BufferedOutputStream(out));
+    }
+}
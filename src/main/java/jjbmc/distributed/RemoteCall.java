@@ -0,0 +1,136 @@
+package jjbmc.distributed;
+
+import jjbmc.JbmcCall;
+import jjbmc.JbmcProcess;
+import jjbmc.ResourceUsage;
+import org.jspecify.annotations.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * A jbmc call that is queued by the {@link Coordinator} and run by a worker. Its output is read when the result of
+ * the worker arrives.
+ */
+final class RemoteCall<T> implements JbmcCall<T> {
+    final long id;
+    final String bundle;
+    final List<String> arguments;
+    final int timeout;
+    /**
+     * How often the call was given to a worker.
+     */
+    int attempts;
+    /**
+     * The worker that runs the call, null while it is queued.
+     */
+    volatile @Nullable Object worker;
+    private final JbmcProcess.OutputReader<T> reader;
+    private final Coordinator coordinator;
+    private final CompletableFuture<Protocol.Message> result = new CompletableFuture<>();
+    private volatile boolean cancelled;
+
+    RemoteCall(Coordinator coordinator, long id, String bundle, List<String> arguments, int timeout,
+               JbmcProcess.OutputReader<T> reader) {
+        this.coordinator = coordinator;
+        this.id = id;
+        this.bundle = bundle;
+        this.arguments = arguments;
+        this.timeout = timeout;
+        this.reader = reader;
+    }
+
+    void complete(Protocol.Message message) {
+        result.complete(message);
+    }
+
+    /**
+     * Ends the call without a result of jbmc, e.g. because every worker that tried it was lost.
+     */
+    void fail(String reason) {
+        result.complete(new Protocol.Message("result").with("exitValue", -1).with("stderr", reason));
+    }
+
+    @Override
+    public @Nullable T await() throws InterruptedException, IOException {
+        Protocol.Message message;
+        try {
+            message = result.get();
+        } catch (InterruptedException e) {
+            cancel();
+            throw e;
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+        if (isCancelled() || isTimedOut() || message.payload().length == 0) {
+            return null;
+        }
+        try (var stdout = new GZIPInputStream(new ByteArrayInputStream(message.payload()))) {
+            return reader.read(stdout);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Could not read the output of jbmc: " + e.getMessage(), e);
+        }
+    }
+
+    private long value(String key) {
+        var header = result.getNow(null);
+        return header == null || !header.header().has(key) ? -1 : header.header().get(key).getAsLong();
+    }
+
+    private boolean flag(String key) {
+        var header = result.getNow(null);
+        return header != null && header.header().has(key) && header.header().get(key).getAsBoolean();
+    }
+
+    @Override
+    public int exitValue() {
+        return (int) value("exitValue");
+    }
+
+    @Override
+    public String errorOutput() {
+        var header = result.getNow(null);
+        return header == null || !header.header().has("stderr") ? "" : header.header().get("stderr").getAsString();
+    }
+
+    @Override
+    public long time() {
+        return Math.max(value("time"), 0);
+    }
+
+    @Override
+    public ResourceUsage resources() {
+        return new ResourceUsage(time(), value("cpuTime"), value("userTime"), value("systemTime"), value("peakRss"));
+    }
+
+    @Override
+    public boolean isTimedOut() {
+        return flag("timedOut");
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelled || flag("cancelled");
+    }
+
+    @Override
+    public void cancel() {
+        if (cancelled || result.isDone()) {
+            return;
+        }
+        cancelled = true;
+        coordinator.cancel(this);
+        result.complete(new Protocol.Message("result").with("cancelled", true));
+    }
+
+    @Override
+    public void close() {
+        cancel();
+    }
+}
@@ -0,0 +1,242 @@
+package jjbmc.distributed;
+
+import com.google.gson.JsonElement;
+import jjbmc.JbmcLauncher;
+import jjbmc.JbmcProcess;
+import jjbmc.Workspaces;
+import org.jspecify.annotations.Nullable;
+import picocli.CommandLine;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
+
+import static jjbmc.ErrorLogger.*;
+import static picocli.CommandLine.*;
+
+/**
+ * Runs jbmc for a {@link Coordinator}: connects to it, receives the bundles of class files and the jobs, runs up to
+ * {@code -jobs} jbmc processes at a time and sends their output back. A worker ends when the coordinator shuts it
+ * down or the connection is lost.
+ */
+@Command(name = "worker", header = "@|bold Run the jbmc calls of a distributed batch|@")
+public class Worker implements Callable<Integer> {
+    @Parameters(index = "0", description = "Address of the coordinator, host:port.")
+    private String coordinator = "";
+
+    @Option(names = {"-jobs"},
+            description = "Number of jbmc calls that are run in parallel. (default: number of available cores)")
+    private int jobs = Runtime.getRuntime().availableProcessors();
+
+    @Option(names = {"-jbmc", "-jbmcBinary"},
+            description = "The jbmc binary of this machine.")
+    private String jbmcBin = "jbmc";
+
+    @Option(names = {"-wr", "-workspaceRoot"},
+            description = "Folder in which the bundles are unpacked, e.g. /dev/shm/jjbmc. (default: the temp folder)")
+    private Path workspaceRoot = Path.of(System.getProperty("java.io.tmpdir"), "jjbmc-worker");
+
+    @Option(names = {"-tk", "-token"},
+            description = "Token the coordinator expects.")
+    private @Nullable String token;
+
+    @Option(names = {"-h", "-help"}, usageHelp = true,
+            description = "Print usage help and exit.")
+    private boolean usageHelpRequested;
+
+    private final boolean isWindows = System.getProperty("os.name").toLowerCase().startsWith("windows");
+    private final Map<String, Path> bundles = new ConcurrentHashMap<>();
+    private final Map<Long, JbmcProcess<byte[]>> running = new ConcurrentHashMap<>();
+    private volatile @Nullable Socket socket;
+
+    public Worker() {
+    }
+
+    public Worker(String coordinator, int jobs, String jbmcBin, Path workspaceRoot, @Nullable String token) {
+        this.coordinator = coordinator;
+        this.jobs = jobs;
+        this.jbmcBin = jbmcBin;
+        this.workspaceRoot = workspaceRoot;
+        this.token = token;
+    }
+
+    public static int run(String... args) {
+        return new CommandLine(new Worker())
+                .setCaseInsensitiveEnumValuesAllowed(true)
+                .setColorScheme(Help.defaultColorScheme(Help.Ansi.AUTO))
+                .execute(args);
+    }
+
+    @Override
+    public Integer call() throws Exception {
+        var address = Coordinator.address(coordinator);
+        try (var socket = new Socket(address.getHostString(), address.getPort())) {
+            this.socket = socket;
+            socket.setKeepAlive(true);
+            var in = Protocol.input(socket.getInputStream());
+            var out = Protocol.output(socket.getOutputStream());
+            var hello = new Protocol.Message("hello").with("slots", jobs).with("name", hostName());
+            if (token != null) {
+                hello.with("token", token);
+            }
+            send(out, hello);
+            info("Connected to the coordinator %s with %d slots.", coordinator, jobs);
+            var heartbeat = Thread.ofVirtual().name("jjbmc-heartbeat").start(() -> heartbeat(out));
+            try {
+                while (true) {
+                    var message = Protocol.read(in);
+                    var header = message.header();
+                    switch (message.type()) {
+                        case "bundle" -> {
+                            var folder = Workspaces.create(workspaceRoot, "bundle");
+                            Bundle.unpack(message.payload(), folder);
+                            bundles.put(header.get("id").getAsString(), folder);
+                        }
+                        case "job" -> Thread.ofVirtual().name("jjbmc-job").start(() -> runJob(message, out));
+                        case "cancel" -> {
+                            var process = running.get(header.get("job").getAsLong());
+                            if (process != null) {
+                                process.cancel();
+                            }
+                        }
+                        case "release" -> {
+                            var folder = bundles.remove(header.get("bundle").getAsString());
+                            if (folder != null) {
+                                Workspaces.deleteLater(folder);
+                            }
+                        }
+                        case "shutdown" -> {
+                            info("The coordinator is done.");
+                            return 0;
+                        }
+                        default -> debug("Unexpected message from the coordinator: %s", message.type());
+                    }
+                }
+            } finally {
+                heartbeat.interrupt();
+                running.values().forEach(JbmcProcess::cancel);
+                bundles.values().forEach(Workspaces::deleteLater);
+                bundles.clear();
+            }
+        } catch (IOException e) {
+            if (socket != null && socket.isClosed()) {
+                // closed by close()
+                return 1;
+            }
+            error("Lost the connection to the coordinator %s: %s", coordinator, e.getMessage());
+            return 1;
+        }
+    }
+
+    /**
+     * Runs the worker on a virtual thread, e.g. next to the coordinator in the same JVM.
+     */
+    public Thread start() {
+        return Thread.ofVirtual().name("jjbmc-worker").start(() -> {
+            try {
+                call();
+            } catch (Exception e) {
+                debug(e);
+            }
+        });
+    }
+
+    private void runJob(Protocol.Message job, DataOutputStream out) {
+        var header = job.header();
+        long id = header.get("id").getAsLong();
+        var result = new Protocol.Message("result").with("job", id);
+        var folder = bundles.get(header.get("bundle").getAsString());
+        if (folder == null) {
+            result.with("exitValue", -1).with("stderr", "The worker does not have the bundle of the job");
+            trySend(out, result);
+            return;
+        }
+        var arguments = header.getAsJsonArray("arguments").asList().stream().map(JsonElement::getAsString).toList();
+        var command = JbmcLauncher.command(jbmcBin, isWindows, arguments);
+        debug("Running job %d: %s", id, List.of(command));
+        try (var process = JbmcProcess.start(command, folder, header.get("timeout").getAsInt(), Worker::gzip)) {
+            running.put(id, process);
+            byte[] output;
+            try {
+                output = process.await();
+            } finally {
+                running.remove(id);
+            }
+            var resources = process.resources();
+            result.with("exitValue", process.exitValue())
+                    .with("timedOut", process.isTimedOut())
+                    .with("cancelled", process.isCancelled())
+                    .with("time", process.time())
+                    .with("cpuTime", resources.cpuTime())
+                    .with("userTime", resources.userTime())
+                    .with("systemTime", resources.systemTime())
+                    .with("peakRss", resources.peakRss())
+                    .with("stderr", process.errorOutput());
+            trySend(out, output == null ? result : result.with(output));
+        } catch (IOException e) {
+            trySend(out, result.with("exitValue", -1).with("stderr", String.valueOf(e.getMessage())));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static byte[] gzip(InputStream stdout) throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        try (var gzip = new GZIPOutputStream(bytes)) {
+            stdout.transferTo(gzip);
+        }
+        return bytes.toByteArray();
+    }
+
+    private void heartbeat(DataOutputStream out) {
+        try {
+            while (true) {
+                Thread.sleep(Protocol.HEARTBEAT_INTERVAL);
+                send(out, new Protocol.Message("heartbeat"));
+            }
+        } catch (InterruptedException | IOException e) {
+            // the connection is over
+        }
+    }
+
+    private static void send(DataOutputStream out, Protocol.Message message) throws IOException {
+        synchronized (out) {
+            Protocol.write(out, message);
+        }
+    }
+
+    private void trySend(DataOutputStream out, Protocol.Message message) {
+        try {
+            send(out, message);
+        } catch (IOException e) {
+            debug("Could not send the result of a job: %s", e.getMessage());
+        }
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (IOException e) {
+            return "unknown";
+        }
+    }
+
+    /**
+     * Drops the connection without a goodbye, the coordinator queues the running jobs again.
+     */
+    public void close() throws IOException {
+        var socket = this.socket;
+        if (socket != null) {
+            socket.close();
+        }
+    }
+}
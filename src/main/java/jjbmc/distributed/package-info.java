@@ -0,0 +1,3 @@
+@NullMarked package jjbmc.distributed;
+
+import org.jspecify.annotations.NullMarked;
@@ -14,7 +14,7 @@ import com.github.javaparser.ast.stmt.ExpressionStmt;
 import com.github.javaparser.ast.stmt.ReturnStmt;
 import com.github.javaparser.ast.stmt.Statement;
 import com.github.javaparser.ast.visitor.VoidVisitorAdapter;
-import jjbmc.JJBMCOptions;
+import jjbmc.VerificationContext;
 import lombok.RequiredArgsConstructor;
 import org.jspecify.annotations.Nullable;
 
@@ -28,9 +28,10 @@ import static jjbmc.jml2java.EmbeddContracts.*;
 public class CreateMethodContracts extends VoidVisitorAdapter<@Nullable Object> {
     @Nullable TypeDeclaration<?> last;
     private final int maxArraySize;
+    private final VerificationContext context;
 
-    public CreateMethodContracts(JJBMCOptions options) {
-        this(options.getMaxArraySize());
+    public CreateMethodContracts(VerificationContext context) {
+        this(context.getOptions().getMaxArraySize(), context);
     }
 
 
@@ -78,21 +79,21 @@ public class CreateMethodContracts extends VoidVisitorAdapter<@Nullable Object>
         var body = mContract.getBody().get();
         body.getStatements().clear();
 
-        body.addStatement(Jml2JavaFacade.assert_(requires));
+        body.addStatement(Jml2JavaFacade.assert_(requires, context));
         if (!n.getType().isVoidType()) {
             var returnVarExpr = new VariableDeclarationExpr(n.getType(), RESULTVAR);
             Statement st = new ExpressionStmt(returnVarExpr);
             body.getStatements().add(st);
-            body.addStatement(Jml2JavaFacade.havoc(returnVarExpr.asVariableDeclarationExpr()));
+            body.addStatement(Jml2JavaFacade.havoc(returnVarExpr.asVariableDeclarationExpr(), context));
         }
         // save references to old variables
-        Jml2JavaFacade.storeOlds(ensures, maxArraySize).forEach(body::addStatement);
+        Jml2JavaFacade.storeOlds(ensures, maxArraySize, context).forEach(body::addStatement);
 
         for (Expression expression : assignable) {
-            body.addStatement(Jml2JavaFacade.havoc(expression));
+            body.addStatement(Jml2JavaFacade.havoc(expression, context));
         }
 
-        body.addStatement(Jml2JavaFacade.assume(ensures));
+        body.addStatement(Jml2JavaFacade.assume(ensures, context));
 
         if (!n.getType().isVoidType()) {
             body.addStatement(new ReturnStmt(new NameExpr(RESULTVAR)));
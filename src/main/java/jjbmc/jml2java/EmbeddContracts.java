@@ -1,10 +1,12 @@
 package jjbmc.jml2java;
 
+import com.github.javaparser.ast.CompilationUnit;
 import com.github.javaparser.ast.Node;
 import com.github.javaparser.ast.NodeList;
 import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
 import com.github.javaparser.ast.body.MethodDeclaration;
 import com.github.javaparser.ast.body.Parameter;
+import com.github.javaparser.ast.body.TypeDeclaration;
 import com.github.javaparser.ast.body.VariableDeclarator;
 import com.github.javaparser.ast.expr.*;
 import com.github.javaparser.ast.jml.clauses.*;
@@ -14,7 +16,8 @@ import com.github.javaparser.ast.type.PrimitiveType;
 import com.github.javaparser.ast.type.Type;
 import com.github.javaparser.ast.visitor.ModifierVisitor;
 import com.github.javaparser.ast.visitor.Visitable;
-import jjbmc.JJBMCOptions;
+import jjbmc.VerificationContext;
+import jjbmc.VerificationTarget;
 import lombok.RequiredArgsConstructor;
 import org.jspecify.annotations.Nullable;
 
@@ -37,9 +40,10 @@ public class EmbeddContracts extends ModifierVisitor<@Nullable Object> {
 
     private final boolean forceInliningMethods;
     private final int maxArraySize;
+    private final VerificationContext context;
 
-    public EmbeddContracts(JJBMCOptions options) {
-        this(options.forceInliningMethods, options.getMaxArraySize());
+    public EmbeddContracts(VerificationContext context) {
+        this(context.getOptions().forceInliningMethods, context.getOptions().getMaxArraySize(), context);
     }
 
 
@@ -92,51 +96,102 @@ public class EmbeddContracts extends ModifierVisitor<@Nullable Object> {
     @Override
     public Visitable visit(MethodDeclaration n, Object arg) {
         if (!Jml2JavaFacade.ignoreNodeByAnnotation(n)) {
-            var contracts = n.getContracts();
-            Expression ensures = new BooleanLiteralExpr(true);
-            Expression requires = new BooleanLiteralExpr(true);
-            List<Expression> assignable = new ArrayList<>();
-            List<Expression> sigOnly = new ArrayList<>();
             // Only one contract currently supported
-            if (contracts.size() > 1) {
+            if (n.getContracts().size() > 1) {
                 return n;
                 //throw new UnsupportedException("Only methods with exactly one contract supported for now. Failed for: " + n.getNameAsString());
             }
 
+            @Nullable MethodDeclaration sanityCheck = null;
             if (n.getParentNode().isPresent()) {
                 var copy = n.clone();
                 ClassOrInterfaceDeclaration parentClass = (ClassOrInterfaceDeclaration) n.getParentNode().get();
                 copy.getContracts().clear();
                 parentClass.addMember(copy);
+                if (context.getOptions().doSanityCheck) {
+                    sanityCheck = n.clone();
+                    parentClass.addMember(sanityCheck);
+                }
             }
 
-            if (!contracts.isEmpty()) {
-                var contract = contracts.getFirst().get();
+            embedContract(n, false);
+            if (sanityCheck != null) {
+                embedContract(sanityCheck, true);
+            }
+        }
+        return n;
+    }
 
-                assert !containsInvalidClauses(contract);
+    /**
+     * Turns the method into a verification harness for its contract. The harness of a sanity check asserts false
+     * instead of the post-condition, so it can only be verified if the assumptions are contradictory.
+     */
+    private void embedContract(MethodDeclaration n, boolean sanityCheck) {
+        var contracts = n.getContracts();
+        Expression ensures = new BooleanLiteralExpr(true);
+        Expression requires = new BooleanLiteralExpr(true);
+        List<Expression> assignable = new ArrayList<>();
+        List<Expression> sigOnly = new ArrayList<>();
+
+        if (!contracts.isEmpty()) {
+            var contract = contracts.getFirst().get();
+
+            assert !containsInvalidClauses(contract);
+
+            ensures = gatherAnd(contract, JmlClauseKind.ENSURES);
+            ensures.setParentNode(contract);
+            requires = gatherAnd(contract, JmlClauseKind.REQUIRES);
+            requires.setParentNode(contract);
+            assignable = gather(contract, JmlClauseKind.ASSIGNABLE);
+            assignable.forEach(a -> a.setParentNode(contract));
+            sigOnly = gather(contract, JmlClauseKind.SIGNALS_ONLY);
+            sigOnly.forEach(a -> a.setParentNode(contract));
 
-                ensures = gatherAnd(contract, JmlClauseKind.ENSURES);
-                ensures.setParentNode(contract);
-                requires = gatherAnd(contract, JmlClauseKind.REQUIRES);
-                requires.setParentNode(contract);
-                assignable = gather(contract, JmlClauseKind.ASSIGNABLE);
-                assignable.forEach(a -> a.setParentNode(contract));
-                sigOnly = gather(contract, JmlClauseKind.SIGNALS_ONLY);
-                sigOnly.forEach(a -> a.setParentNode(contract));
+        }
 
-            }
+        if (assignable.isEmpty()) {
+            assignable = Collections.singletonList(new NameExpr("\\everything"));
+        }
+        if (sanityCheck) {
+            ensures = new BooleanLiteralExpr(false);
+        }
+        contracts.clear();//delete the contract
 
-            if (assignable.isEmpty()) {
-                assignable = Collections.singletonList(new NameExpr("\\everything"));
-            }
-            contracts.clear();//delete the contract
+        context.setCurrentNode(n);
+        n.setBody(constructMethodBody(n, ensures, requires, assignable, sigOnly));
+        n.setName(n.getNameAsString() + (sanityCheck ? VerificationTarget.SANITY_CHECK_SUFFIX : VerificationTarget.VERIFICATION_SUFFIX));
+        n.addAnnotation(Jml2JavaFacade.createGeneratedAnnotation());
+        registerTarget(n, sanityCheck);
+    }
 
-            Jml2JavaFacade.currentNode = n;
-            n.setBody(constructMethodBody(n, ensures, requires, assignable, sigOnly));
-            n.setName(n.getNameAsString() + "Verification");
-            n.addAnnotation(Jml2JavaFacade.createGeneratedAnnotation());
+    /**
+     * Records the verification method in the context, so that the translated file does not have to be parsed again
+     * to find out what to run jbmc on.
+     */
+    private void registerTarget(MethodDeclaration n, boolean sanityCheck) {
+        var type = n.findAncestor(TypeDeclaration.class);
+        if (type.isEmpty()) {
+            return;
         }
-        return n;
+        String descriptor;
+        try {
+            descriptor = n.toDescriptor();
+        } catch (RuntimeException e) {
+            // jbmc also accepts the plain name, as long as the method is not overloaded
+            descriptor = null;
+        }
+        context.addTarget(new VerificationTarget(binaryName(type.get()), n.getNameAsString(), descriptor, sanityCheck));
+    }
+
+    private static String binaryName(TypeDeclaration<?> type) {
+        var outer = type.getParentNode().filter(TypeDeclaration.class::isInstance).map(TypeDeclaration.class::cast);
+        if (outer.isPresent()) {
+            return binaryName(outer.get()) + "$" + type.getNameAsString();
+        }
+        return type.findCompilationUnit()
+                .flatMap(CompilationUnit::getPackageDeclaration)
+                .map(it -> it.getNameAsString() + "." + type.getNameAsString())
+                .orElse(type.getNameAsString());
     }
 
     private BlockStmt constructMethodBody(MethodDeclaration method,
@@ -151,14 +206,14 @@ public class EmbeddContracts extends ModifierVisitor<@Nullable Object> {
             Statement st = new ExpressionStmt(returnVarExpr);
             st.setParentNode(method);
             block.getStatements().add(st);
-            block.addStatement(Jml2JavaFacade.havoc(returnVarExpr.asVariableDeclarationExpr()));
+            block.addStatement(Jml2JavaFacade.havoc(returnVarExpr.asVariableDeclarationExpr(), context));
         }
 
         // assume pre-condition
-        block.addStatement(Jml2JavaFacade.assume(requires));
+        block.addStatement(Jml2JavaFacade.assume(requires, context));
 
         // save references to old variables
-        Jml2JavaFacade.storeOlds(ensures, maxArraySize).forEach(block::addStatement);
+        Jml2JavaFacade.storeOlds(ensures, maxArraySize, context).forEach(block::addStatement);
 
         foundReturn = false;
         var body = (BlockStmt) method.getBody().get().accept(this, null);
@@ -187,7 +242,7 @@ public class EmbeddContracts extends ModifierVisitor<@Nullable Object> {
         }
 
         //assert the post-condition
-        block.addStatement(Jml2JavaFacade.assert_(ensures));
+        block.addStatement(Jml2JavaFacade.assert_(ensures, context));
 
 
         if (!method.getType().isVoidType()) {
@@ -248,7 +303,7 @@ public class EmbeddContracts extends ModifierVisitor<@Nullable Object> {
         for (Expression e : inits) {
             block.addStatement(new ExpressionStmt(e));
         }
-        var oldD = "oldD" + Jml2JavaExpressionTranslator.counter.getAndIncrement();
+        var oldD = "oldD" + context.nextId();
         block.addStatement(
                 new VariableDeclarationExpr(
                         new VariableDeclarator(
@@ -257,10 +312,10 @@ public class EmbeddContracts extends ModifierVisitor<@Nullable Object> {
                                 decreases.clone())));
 
         for (Expression loopInvar : loopInvars) {
-            block.addStatement(Jml2JavaFacade.assert_(loopInvar.clone()));
+            block.addStatement(Jml2JavaFacade.assert_(loopInvar.clone(), context));
         }
         for (Expression assignable : assignables) {
-            block.addStatement(Jml2JavaFacade.havoc(assignable));
+            block.addStatement(Jml2JavaFacade.havoc(assignable, context));
         }
 
         var thenBlock = new BlockStmt();
@@ -268,7 +323,7 @@ public class EmbeddContracts extends ModifierVisitor<@Nullable Object> {
         ifThen.setParentNode(block);
         thenBlock.addStatement((Statement) body.accept(this, null));
         for (Expression loopInvar : loopInvars) {
-            thenBlock.addStatement(Jml2JavaFacade.assert_(loopInvar).clone());
+            thenBlock.addStatement(Jml2JavaFacade.assert_(loopInvar, context).clone());
         }
         if (decreases != null) {
             thenBlock.addStatement(Jml2JavaFacade.assertStatement(
@@ -280,7 +335,7 @@ public class EmbeddContracts extends ModifierVisitor<@Nullable Object> {
         }
         thenBlock.addStatement(Jml2JavaFacade.assumeStatement(new BooleanLiteralExpr(false)));
         for (Expression loopInvar : loopInvars) {
-            block.addStatement(Jml2JavaFacade.assume(loopInvar).clone());
+            block.addStatement(Jml2JavaFacade.assume(loopInvar, context).clone());
         }
         block.addStatement(ifThen);
         return block;
@@ -13,6 +13,7 @@ import com.github.javaparser.ast.type.VarType;
 import com.github.javaparser.ast.visitor.GenericVisitorAdapter;
 import com.github.javaparser.ast.visitor.ModifierVisitor;
 import com.github.javaparser.ast.visitor.Visitable;
+import jjbmc.VerificationContext;
 import jjbmc.jml2java.Jml2JavaFacade.Result;
 import org.jspecify.annotations.Nullable;
 
@@ -30,9 +31,15 @@ import static jjbmc.jml2java.Jml2JavaFacade.unroll;
  * @version 1 (04.10.22)
  */
 public class Jml2JavaExpressionTranslator {
-    public static final AtomicInteger counter = new AtomicInteger();
+    private final AtomicInteger counter;
+    private final VerificationContext context;
     private int maxArraySize;
 
+    public Jml2JavaExpressionTranslator(VerificationContext context) {
+        this.counter = context.getCounter();
+        this.context = context;
+    }
+
     public Result accept(Expression e, TranslationMode arg) {
         if (Jml2JavaFacade.containsJmlExpression(e)) {
             return e.accept(new Jml2JavaVisitor(), arg);
@@ -270,7 +277,7 @@ public class Jml2JavaExpressionTranslator {
             var outer = new BlockStmt();
 
             SimpleName target = newTargetForAssignment();
-            var type = n.getBody().calculateResolvedType();
+            var type = context.resolveType(n.getBody());
             outer.addAndGetStatement(
                     new ExpressionStmt(new VariableDeclarationExpr(resolvedType2Type(type),
                             target.asString())));
@@ -18,7 +18,10 @@ import com.github.javaparser.resolution.types.ResolvedArrayType;
 import com.github.javaparser.resolution.types.ResolvedPrimitiveType;
 import com.github.javaparser.resolution.types.ResolvedType;
 import jjbmc.JJBMCOptions;
+import jjbmc.Metrics;
 import jjbmc.MyPPrintVisitor;
+import jjbmc.VerificationContext;
+import jjbmc.trace.TraceInformation;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NonNull;
@@ -38,9 +41,6 @@ import static com.github.javaparser.resolution.types.ResolvedPrimitiveType.*;
  * @version 1 (04.10.22)
  */
 public class Jml2JavaFacade {
-    @Nullable
-    public static Node currentNode;
-
     public static Statement assumeStatement(Expression e) {
         return new ExpressionStmt(new MethodCallExpr(new NameExpr("CProver"), "assume", new NodeList<>(e)));
     }
@@ -49,16 +49,16 @@ public class Jml2JavaFacade {
         return new AssertStmt(e);
     }
 
-    public static Statement assume(Expression ensures) {
-        var r = translate(ensures, TranslationMode.ASSUME);
+    public static Statement assume(Expression ensures, VerificationContext context) {
+        var r = translate(ensures, TranslationMode.ASSUME, context);
         r.necessaryVars.addAll(r.statements);
         r.necessaryVars.add(assumeStatement(r.value));
 
         return new BlockStmt(r.necessaryVars);
     }
 
-    public static BlockStmt assert_(Expression requires) {
-        var r = translate(requires, TranslationMode.ASSERT);
+    public static BlockStmt assert_(Expression requires, VerificationContext context) {
+        var r = translate(requires, TranslationMode.ASSERT, context);
         r.necessaryVars.addAll(r.statements);
         r.necessaryVars.add(assertStatement(r.value));
 
@@ -82,8 +82,8 @@ public class Jml2JavaFacade {
     }
 
     // Returns a list of statements that save expressions under "\old"
-    public static List<Statement> storeOlds(Expression requires, int maxArraySize) {
-        return new OldVisitor(maxArraySize).run(requires);
+    public static List<Statement> storeOlds(Expression requires, int maxArraySize, VerificationContext context) {
+        return new OldVisitor(maxArraySize, context).run(requires);
     }
 
     public static boolean isSubNode(Node parent, Node child) {
@@ -97,10 +97,11 @@ public class Jml2JavaFacade {
         return res.get();
     }
 
-    public static NodeList<Statement> storeOld(Expression expression, List<JmlQuantifiedExpr> relevantQuantifiers, int maxArraySize) {
+    public static NodeList<Statement> storeOld(Expression expression, List<JmlQuantifiedExpr> relevantQuantifiers, int maxArraySize,
+                                               VerificationContext context) {
         relevantQuantifiers = new NodeList<>(relevantQuantifiers);
         relevantQuantifiers.removeIf(v -> !isSubNode(expression, QuantifierSplitter.getVariable(v).getName()));
-        var translatedExpression = Jml2JavaFacade.translate(expression.clone(), TranslationMode.JAVA);
+        var translatedExpression = Jml2JavaFacade.translate(expression.clone(), TranslationMode.JAVA, context);
         expression.setParentNode(expression.getParentNode().get());
         var exprCopy = translatedExpression.value;
         var res = new NodeList<Statement>();
@@ -123,8 +124,8 @@ public class Jml2JavaFacade {
         ResolvedType resolvedType = null;
         Type realType = null;
         try {
-            setCurrentNode(expression);
-            resolvedType = expression.calculateResolvedType();
+            setCurrentNode(expression, context);
+            resolvedType = context.resolveType(expression);
             realType = resolvedType2Type(resolvedType);
         } catch (IllegalStateException e) {
             e.printStackTrace();
@@ -158,13 +159,13 @@ public class Jml2JavaFacade {
 
         for (JmlQuantifiedExpr quantifiedExpr : relevantQuantifiers) {
             Expression lowerBound = QuantifierSplitter.getLowerBound(quantifiedExpr);
-            var translatedLowerBound = Jml2JavaFacade.translate((Expression) lowerBound.clone().setParentNode(quantifiedExpr), TranslationMode.DEMONIC);
+            var translatedLowerBound = Jml2JavaFacade.translate((Expression) lowerBound.clone().setParentNode(quantifiedExpr), TranslationMode.DEMONIC, context);
             lowerBound = translatedLowerBound.value;
             Expression upperBound = QuantifierSplitter.getUpperBound(quantifiedExpr);
-            var translatedUpperBound = Jml2JavaFacade.translate((Expression) upperBound.clone().setParentNode(quantifiedExpr), TranslationMode.DEMONIC);
+            var translatedUpperBound = Jml2JavaFacade.translate((Expression) upperBound.clone().setParentNode(quantifiedExpr), TranslationMode.DEMONIC, context);
             upperBound = translatedUpperBound.value;
 
-            var loopVarDecl = new VariableDeclarationExpr(PrimitiveType.intType(), "__tmp__" + Jml2JavaExpressionTranslator.counter.getAndIncrement());
+            var loopVarDecl = new VariableDeclarationExpr(PrimitiveType.intType(), "__tmp__" + context.nextId());
             var loopVar = loopVarDecl.getVariable(0).getNameAsExpression();
             st.accept(new ReplaceVariable(QuantifierSplitter.getVariable(quantifiedExpr), loopVar.getNameAsString()), null);
             var forLoop = new ForStmt(new NodeList<>(new AssignExpr(loopVarDecl, lowerBound, AssignExpr.Operator.ASSIGN)),
@@ -184,28 +185,28 @@ public class Jml2JavaFacade {
         return res;
     }
 
-    private static void setCurrentNode(Node expression) {
+    private static void setCurrentNode(Node expression, VerificationContext context) {
         while (expression.getParentNode().isPresent()) {
             expression.getParentNode().get();
             expression = expression.getParentNode().get();
         }
-        expression.setParentNode(currentNode);
+        expression.setParentNode(context.getCurrentNode());
 
     }
 
-    public static Statement havoc(Expression expression) {
-        return havoc(expression, true);
+    public static Statement havoc(Expression expression, VerificationContext context) {
+        return havoc(expression, true, context);
     }
 
-    public static Statement havoc(Expression expression, boolean allowNull) {
+    public static Statement havoc(Expression expression, boolean allowNull, VerificationContext context) {
         if (expression.toString().equals("\\nothing")) {
             return new BlockStmt();
         }
-        ResolvedType type = expression.calculateResolvedType();
+        ResolvedType type = context.resolveType(expression);
         var functionName = "";
         if (expression instanceof ArrayAccessExpr arrayAccessExpr) {
             if (expression.toString().contains("*") || expression.toString().contains("..")) {
-                return havocArray(arrayAccessExpr);
+                return havocArray(arrayAccessExpr, context);
             }
         }
         if (type.equals(INT)) {
@@ -238,12 +239,12 @@ public class Jml2JavaFacade {
         return new ExpressionStmt(new AssignExpr(expression, nondetFunction, AssignExpr.Operator.ASSIGN));
     }
 
-    public static Statement havocArray(ArrayAccessExpr expr) {
+    public static Statement havocArray(ArrayAccessExpr expr, VerificationContext context) {
         BlockStmt blockStmt = new BlockStmt();
         blockStmt.setParentNode(expr.getParentNode().get());
         var min = new IntegerLiteralExpr("0");
         var max = new FieldAccessExpr(expr.getName(), "length");
-        var loopVarDecl = new VariableDeclarationExpr(PrimitiveType.intType(), "__tmp__" + Jml2JavaExpressionTranslator.counter.getAndIncrement());
+        var loopVarDecl = new VariableDeclarationExpr(PrimitiveType.intType(), "__tmp__" + context.nextId());
         var loopVar = loopVarDecl.getVariable(0).getNameAsExpression();
         var element = expr.clone();
         element.setParentNode(blockStmt);
@@ -253,21 +254,34 @@ public class Jml2JavaFacade {
                 new NodeList<>(new UnaryExpr(loopVar, UnaryExpr.Operator.POSTFIX_INCREMENT)),
                 new BlockStmt());
         blockStmt.addStatement(forLoop);
-        var havocElement = havoc(element);
+        var havocElement = havoc(element, context);
         ((BlockStmt) (forLoop.getBody())).addStatement(havocElement);
 
         return blockStmt;
     }
 
     public static CompilationUnit translate(CompilationUnit cu, JJBMCOptions options) {
+        return translate(cu, new VerificationContext(options));
+    }
+
+    public static CompilationUnit translate(CompilationUnit cu, VerificationContext context) {
+        var metrics = context.getMetrics();
+        var file = context.fileLabel();
+
         //Normlize all binary expressions
+        long start = System.nanoTime();
         cu.accept(new NormalizeBinaryExpressions(), null);
+        metrics.recordSince(Metrics.NORMALIZE, file, "", start);
 
         //add method stubs for call to contracts
-        cu.accept(new CreateMethodContracts(options), null);
+        start = System.nanoTime();
+        cu.accept(new CreateMethodContracts(context), null);
+        metrics.recordSince(Metrics.CREATE_CONTRACTS, file, "", start);
 
         //rewrite methods and loops
-        var res = (CompilationUnit) cu.accept(new EmbeddContracts(options), null);
+        start = System.nanoTime();
+        var res = (CompilationUnit) cu.accept(new EmbeddContracts(context), null);
+        metrics.recordSince(Metrics.EMBED_CONTRACTS, file, "", start);
 
         // add exception type to the compilation unit
         cu.addType(Jml2JavaFacade.createExceptionClass());
@@ -326,6 +340,15 @@ public class Jml2JavaFacade {
         return pp.print(translation);
     }
 
+    /**
+     * Prints the translation and records the original line of every printed statement in the trace information.
+     */
+    public static String pprint(Node translation, TraceInformation lines) {
+        DefaultPrettyPrinter pp = new DefaultPrettyPrinter(
+                configuration -> new MyPPrintVisitor(configuration, lines), new DefaultPrinterConfiguration());
+        return pp.print(translation);
+    }
+
     public static ImportDeclaration createCProverImport() {
         return new ImportDeclaration("org.cprover.CProver", false, false);
     }
@@ -358,8 +381,8 @@ public class Jml2JavaFacade {
         return false;
     }
 
-    public static Result translate(Expression expression, TranslationMode mode) {
-        Jml2JavaExpressionTranslator j2jt = new Jml2JavaExpressionTranslator();
+    public static Result translate(Expression expression, TranslationMode mode, VerificationContext context) {
+        Jml2JavaExpressionTranslator j2jt = new Jml2JavaExpressionTranslator(context);
         return j2jt.accept(expression, mode);
     }
 
@@ -469,15 +492,17 @@ public class Jml2JavaFacade {
         final NodeList<JmlQuantifiedExpr> currentQuantifiers;
         final NodeList<Statement> statements;
         private final int maxArraySize;
+        private final VerificationContext context;
 
-        OldVisitor(int maxArraySize) {
+        OldVisitor(int maxArraySize, VerificationContext context) {
             this.maxArraySize = maxArraySize;
+            this.context = context;
             currentQuantifiers = new NodeList<>();
             statements = new NodeList<>();
         }
 
         public NodeList<Statement> run(Expression expr) {
-            OldVisitor v = new OldVisitor(maxArraySize);
+            OldVisitor v = new OldVisitor(maxArraySize, context);
             expr.accept(v, null);
             return v.statements;
         }
@@ -493,7 +518,7 @@ public class Jml2JavaFacade {
         @Override
         public Visitable visit(MethodCallExpr n, Object arg) {
             if (n.getNameAsString().equals("\\old")) {
-                statements.addAll(storeOld(n.getArgument(0), currentQuantifiers, maxArraySize));
+                statements.addAll(storeOld(n.getArgument(0), currentQuantifiers, maxArraySize, context));
             }
             return super.visit(n, arg);
         }
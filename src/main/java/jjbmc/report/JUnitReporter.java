@@ -0,0 +1,131 @@
+package jjbmc.report;
+
+import jjbmc.VerificationResult;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.stream.Collectors;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * Writes JUnit XML with one test suite per file and one test case per function. A function with a counterexample
+ * is a failure, a timeout or jbmc error is an error. The status of every property is listed in the output of the
+ * test case. The counts of the suites are left out, as they are not known before the suite is complete.
+ */
+public class JUnitReporter extends Reporter {
+    private final XMLStreamWriter xml;
+    private boolean started;
+    private boolean suiteOpen;
+
+    public JUnitReporter(Writer out) throws IOException {
+        super(out);
+        try {
+            xml = XMLOutputFactory.newFactory().createXMLStreamWriter(out);
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void onStart(Path file) {
+        super.onStart(file);
+        try {
+            startDocument();
+            closeSuite();
+            xml.writeCharacters("\n  ");
+            xml.writeStartElement("testsuite");
+            xml.writeAttribute("name", this.file);
+            suiteOpen = true;
+            xml.flush();
+        } catch (XMLStreamException e) {
+            throw new RuntimeException("Could not write report", e);
+        }
+    }
+
+    private void startDocument() throws XMLStreamException {
+        if (!started) {
+            started = true;
+            xml.writeStartDocument("UTF-8", "1.0");
+            xml.writeCharacters("\n");
+            xml.writeStartElement("testsuites");
+            xml.writeAttribute("name", "JJBMC");
+        }
+    }
+
+    private void closeSuite() throws XMLStreamException {
+        if (suiteOpen) {
+            xml.writeCharacters("\n  ");
+            xml.writeEndElement();
+            suiteOpen = false;
+        }
+    }
+
+    @Override
+    protected void write(VerificationResult result) throws IOException {
+        try {
+            if (!suiteOpen) {
+                onStart(Path.of(file));
+            }
+            xml.writeCharacters("\n    ");
+            xml.writeStartElement("testcase");
+            xml.writeAttribute("classname", file.replaceAll("\\.java$", ""));
+            xml.writeAttribute("name", result.getFunctionName());
+            xml.writeAttribute("time", String.format(Locale.ROOT, "%.3f", result.getTime() / 1000.0));
+
+            var output = result.getOutput();
+            String verdict = verdict(result);
+            if (verdict.equals("TIMEOUT")) {
+                element("error", "timed out at unwind " + result.getUnwind(), "TIMEOUT", "");
+            } else if (verdict.equals("ERROR") || output == null) {
+                element("error", "jbmc could not check the function", "ERROR",
+                        output == null ? "" : String.join("\n", output.getErrors()));
+            } else if (verdict.contains("FAILURE")) {
+                var failed = properties(output).stream().filter(it -> it.status().equals("FAILURE")).toList();
+                var message = failed.size() + (failed.size() == 1 ? " property failed" : " properties failed");
+                element("failure", message, "FAILURE", failed.stream()
+                        .map(it -> it.name() + (it.line() >= 0 ? " in line " + it.line() : "")
+                                + (it.reason() != null ? ": " + it.reason() : "")
+                                + (it.trace().isEmpty() ? "" : "\n" + it.trace()))
+                        .collect(Collectors.joining("\n")));
+            }
+            if (output != null && !output.getPropertyStatus().isEmpty()) {
+                xml.writeStartElement("system-out");
+                xml.writeCharacters(output.getPropertyStatus().entrySet().stream()
+                        .map(it -> it.getKey() + ": " + it.getValue())
+                        .collect(Collectors.joining("\n")));
+                xml.writeEndElement();
+            }
+            xml.writeEndElement();
+            xml.flush();
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private void element(String name, String message, String type, String text) throws XMLStreamException {
+        xml.writeStartElement(name);
+        xml.writeAttribute("message", message);
+        xml.writeAttribute("type", type);
+        xml.writeCharacters(text);
+        xml.writeEndElement();
+    }
+
+    @Override
+    protected void finish() throws IOException {
+        try {
+            startDocument();
+            closeSuite();
+            xml.writeCharacters("\n");
+            xml.writeEndElement();
+            xml.writeEndDocument();
+            xml.writeCharacters("\n");
+            xml.close();
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package jjbmc.report;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import jjbmc.VerificationResult;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes one JSON object per function and line, e.g.
+ * <pre>
+ * {"file":"BubbleSort.java","function":"BubbleSort.sort([I)V","status":"FAILURE","time":1234,"unwind":7,
+ *  "properties":[{"property":"...assertion.1","status":"FAILURE","line":12,"reason":"assertion"}]}
+ * </pre>
+ */
+public class JsonLinesReporter extends Reporter {
+    private final Gson gson = new Gson();
+
+    public JsonLinesReporter(Writer out) {
+        super(out);
+    }
+
+    @Override
+    protected void write(VerificationResult result) throws IOException {
+        out.write(gson.toJson(toJson(result)));
+        out.write('\n');
+    }
+
+    JsonObject toJson(VerificationResult result) {
+        var json = new JsonObject();
+        json.addProperty("file", file);
+        json.addProperty("function", result.getFunctionName());
+        json.addProperty("status", verdict(result));
+        json.addProperty("time", result.getTime());
+        json.addProperty("unwind", result.getUnwind());
+        json.addProperty("cached", result.isCached());
+        if (result.getConfiguration() != null) {
+            json.addProperty("configuration", result.getConfiguration());
+        }
+        var resources = result.getResources();
+        if (resources != null) {
+            var o = new JsonObject();
+            o.addProperty("wallTime", resources.wallTime());
+            o.addProperty("cpuTime", resources.cpuTime());
+            o.addProperty("userTime", resources.userTime());
+            o.addProperty("systemTime", resources.systemTime());
+            o.addProperty("peakRss", resources.peakRss());
+            json.add("resources", o);
+        }
+        var output = result.getOutput();
+        if (output != null) {
+            var properties = new JsonArray();
+            for (PropertyReport property : properties(output)) {
+                var o = new JsonObject();
+                o.addProperty("property", property.name());
+                o.addProperty("status", property.status());
+                if (property.line() >= 0) {
+                    o.addProperty("line", property.line());
+                }
+                if (property.reason() != null) {
+                    o.addProperty("reason", property.reason());
+                }
+                if (property.assertion() != null) {
+                    o.addProperty("assertion", property.assertion());
+                }
+                if (!property.trace().isEmpty()) {
+                    o.addProperty("trace", property.trace());
+                }
+                properties.add(o);
+            }
+            json.add("properties", properties);
+            var errors = new JsonArray();
+            output.getErrors().forEach(errors::add);
+            json.add("errors", errors);
+        }
+        if (!result.getUnknownProperties().isEmpty()) {
+            var unknown = new JsonArray();
+            result.getUnknownProperties().forEach(unknown::add);
+            json.add("unknownProperties", unknown);
+        }
+        var sanityCheck = result.getSanityCheck();
+        if (sanityCheck != null) {
+            json.addProperty("sanityCheck", sanityVerdict(sanityCheck));
+        }
+        return json;
+    }
+}
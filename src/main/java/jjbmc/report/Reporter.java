@@ -0,0 +1,154 @@
+package jjbmc.report;
+
+import jjbmc.JBMCOutput;
+import jjbmc.VerificationListener;
+import jjbmc.VerificationResult;
+import org.jspecify.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the results of a run in a machine-readable format. Every result is written and flushed as soon as the
+ * listener gets it, so reports of long batches can be followed while they grow. Closing the reporter completes
+ * the document.
+ */
+public abstract class Reporter implements VerificationListener, Closeable {
+    public enum Format {
+        /**
+         * One JSON object per function and line.
+         */
+        JSONL,
+        /**
+         * JUnit XML, one test case per function.
+         */
+        JUNIT,
+        /**
+         * SARIF 2.1.0, one result per failed property, timeout or error.
+         */
+        SARIF;
+
+        public Reporter create(Path file) throws IOException {
+            var parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            var out = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+            return switch (this) {
+                case JSONL -> new JsonLinesReporter(out);
+                case JUNIT -> new JUnitReporter(out);
+                case SARIF -> new SarifReporter(out);
+            };
+        }
+    }
+
+    /**
+     * The verdict for a single property. The line, reason, assertion and trace are only known for failed
+     * properties and only if traces were requested.
+     */
+    protected record PropertyReport(String name, String status, int line, @Nullable String reason,
+                                    @Nullable String assertion, String trace) {
+    }
+
+    /**
+     * Opens a reporter for every format and file.
+     */
+    public static List<Reporter> open(Map<Format, Path> reports) throws IOException {
+        var reporters = new ArrayList<Reporter>();
+        for (var entry : reports.entrySet()) {
+            reporters.add(entry.getKey().create(entry.getValue()));
+        }
+        return reporters;
+    }
+
+    protected final Writer out;
+    protected String file = "";
+
+    protected Reporter(Writer out) {
+        this.out = out;
+    }
+
+    @Override
+    public synchronized void onStart(Path file) {
+        this.file = file.toString();
+    }
+
+    @Override
+    public synchronized void onResult(VerificationResult result) {
+        try {
+            write(result);
+            out.flush();
+        } catch (IOException e) {
+            throw new RuntimeException("Could not write report", e);
+        }
+    }
+
+    protected abstract void write(VerificationResult result) throws IOException;
+
+    /**
+     * The per-property verdicts of the output: every property jbmc reported, and the details of those that were
+     * traced.
+     */
+    protected static List<PropertyReport> properties(JBMCOutput output) {
+        var reports = new ArrayList<PropertyReport>();
+        output.getPropertyStatus().forEach((name, status) -> reports.add(details(output, name, status)));
+        for (String name : output.getProperties()) {
+            // e.g. the summary entry for failed unwinding assertions
+            if (!output.getPropertyStatus().containsKey(name)) {
+                reports.add(details(output, name, "FAILURE"));
+            }
+        }
+        return reports;
+    }
+
+    private static PropertyReport details(JBMCOutput output, String name, String status) {
+        int idx = output.getProperties().indexOf(name);
+        if (idx < 0 || !status.equals("FAILURE")) {
+            return new PropertyReport(name, status, -1, null, null, "");
+        }
+        return new PropertyReport(name, status, output.getLineNumbers().get(idx), output.getReasons().get(idx),
+                output.getAsserts().get(idx), output.printTrace(name));
+    }
+
+    /**
+     * The prover status of a finished function, otherwise TIMEOUT or ERROR.
+     */
+    protected static String verdict(VerificationResult result) {
+        var output = result.getOutput();
+        if (result.getStatus() != VerificationResult.Status.DONE || output == null) {
+            return result.getStatus().name();
+        }
+        return output.getErrors().isEmpty() ? output.getProverStatus().trim() : "ERROR";
+    }
+
+    /**
+     * OK if the sanity check found the assumptions satisfiable, i.e. its {@code assert false} failed.
+     */
+    protected static String sanityVerdict(VerificationResult sanityCheck) {
+        var output = sanityCheck.getOutput();
+        if (sanityCheck.getStatus() != VerificationResult.Status.DONE || output == null) {
+            return sanityCheck.getStatus().name();
+        }
+        return output.printStatus().contains("SUCC") ? "FAILED" : "OK";
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try (out) {
+            finish();
+        }
+    }
+
+    /**
+     * Writes whatever completes the document.
+     */
+    protected void finish() throws IOException {
+    }
+}
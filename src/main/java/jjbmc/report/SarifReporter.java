@@ -0,0 +1,127 @@
+package jjbmc.report;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import jjbmc.VerificationResult;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes a SARIF 2.1.0 log with one result per failed property and one per function that timed out or could not be
+ * checked. The results are appended to the open results array as they come in; the document is completed on
+ * {@link #close()}.
+ * <p>
+ * The rule of a failed property is its kind as named by jbmc, e.g. {@code assertion} or
+ * {@code array-index-out-of-bounds}. Lines are only known if traces were requested.
+ */
+public class SarifReporter extends Reporter {
+    private static final String SCHEMA = "https://json.schemastore.org/sarif-2.1.0.json";
+
+    private final Gson gson = new Gson();
+    private boolean started;
+    private boolean first = true;
+
+    public SarifReporter(Writer out) {
+        super(out);
+    }
+
+    private void start() throws IOException {
+        if (started) {
+            return;
+        }
+        started = true;
+        var driver = new JsonObject();
+        driver.addProperty("name", "JJBMC");
+        driver.addProperty("informationUri", "https://github.com/wadoon/JJBMC");
+        var tool = new JsonObject();
+        tool.add("driver", driver);
+        String header = gson.toJson(tool);
+        out.write("{\"version\":\"2.1.0\",\"$schema\":\"" + SCHEMA + "\",\"runs\":[{\"tool\":" + header + ",\"results\":[\n");
+    }
+
+    @Override
+    protected void write(VerificationResult result) throws IOException {
+        start();
+        var output = result.getOutput();
+        String verdict = verdict(result);
+        if (verdict.equals("TIMEOUT") || verdict.equals("ERROR") || output == null) {
+            var message = verdict.equals("TIMEOUT")
+                    ? "jbmc timed out for " + result.getFunctionName() + " at unwind " + result.getUnwind()
+                    : "jbmc could not check " + result.getFunctionName();
+            append(result(verdict.equals("TIMEOUT") ? "jjbmc-timeout" : "jjbmc-error", "warning", message,
+                    result.getFunctionName(), -1));
+            return;
+        }
+        for (PropertyReport property : properties(output)) {
+            if (!property.status().equals("FAILURE")) {
+                continue;
+            }
+            var text = property.reason() != null ? property.reason() : "property " + property.name() + " fails";
+            if (property.assertion() != null) {
+                text += ": " + property.assertion();
+            }
+            var sarifResult = result(rule(property.name()), "error", text, result.getFunctionName(), property.line());
+            var bag = (JsonObject) sarifResult.get("properties");
+            bag.addProperty("property", property.name());
+            if (!property.trace().isEmpty()) {
+                bag.addProperty("trace", property.trace());
+            }
+            append(sarifResult);
+        }
+    }
+
+    private JsonObject result(String ruleId, String level, String text, String function, int line) {
+        var sarifResult = new JsonObject();
+        sarifResult.addProperty("ruleId", ruleId);
+        sarifResult.addProperty("level", level);
+        var message = new JsonObject();
+        message.addProperty("text", text);
+        sarifResult.add("message", message);
+
+        var artifact = new JsonObject();
+        artifact.addProperty("uri", file.replace('\\', '/'));
+        var physical = new JsonObject();
+        physical.add("artifactLocation", artifact);
+        if (line > 0) {
+            var region = new JsonObject();
+            region.addProperty("startLine", line);
+            physical.add("region", region);
+        }
+        var logical = new JsonObject();
+        logical.addProperty("fullyQualifiedName", function);
+        var logicals = new JsonArray();
+        logicals.add(logical);
+        var location = new JsonObject();
+        location.add("physicalLocation", physical);
+        location.add("logicalLocations", logicals);
+        var locations = new JsonArray();
+        locations.add(location);
+        sarifResult.add("locations", locations);
+        sarifResult.add("properties", new JsonObject());
+        return sarifResult;
+    }
+
+    /**
+     * The kind of a jbmc property, e.g. {@code assertion} for {@code java::A.f:()V.assertion.1}.
+     */
+    static String rule(String property) {
+        var parts = property.split("\\.");
+        return parts.length >= 2 ? parts[parts.length - 2] : property;
+    }
+
+    private void append(JsonObject sarifResult) throws IOException {
+        if (!first) {
+            out.write(",\n");
+        }
+        first = false;
+        out.write(gson.toJson(sarifResult));
+    }
+
+    @Override
+    protected void finish() throws IOException {
+        start();
+        out.write("\n]}]}\n");
+    }
+}
@@ -0,0 +1,3 @@
+@NullMarked package jjbmc.report;
+
+import org.jspecify.annotations.NullMarked;
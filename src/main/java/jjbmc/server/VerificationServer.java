@@ -0,0 +1,320 @@
+package jjbmc.server;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import jjbmc.JBMCOutput;
+import jjbmc.Main;
+import jjbmc.Operations;
+import jjbmc.VerificationResult;
+import jjbmc.VerificationSession;
+import org.jspecify.annotations.Nullable;
+import picocli.CommandLine;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.regex.Pattern;
+
+import static jjbmc.ErrorLogger.*;
+import static picocli.CommandLine.*;
+
+/**
+ * Keeps a warm JVM around and verifies the jobs it receives over a local socket. All jobs share one
+ * {@link VerificationSession}, so the JRE type solver, the java compiler and the jbmc version check are only paid for once.
+ * <p>
+ * The protocol is line based: every request and every response is a single JSON object on its own line.
+ * A request looks like
+ * <pre>
+ * {"file": "/abs/path/BubbleSort.java", "function": "sort", "unwind": 5, "maxArraySize": 3,
+ *  "timeout": 30000, "jbmcOptions": ["--java-assume-inputs-non-null"]}
+ * </pre>
+ * where only {@code file} is mandatory. Other fields are rejected: any local user can reach the socket, and options
+ * such as {@code -jbmc} or {@code -wr} would let them run programs or write files as the server's user. For the same
+ * reason only the jbmc options in {@link #JBMC_OPTIONS} are accepted, e.g. not {@code --outfile}.
+ * The server answers with an {@code accepted} message, one {@code result} message per verified function as soon as it
+ * is available and finally a {@code done} message. Malformed requests and failed runs are answered with an {@code error} message.
+ * A connection can be used for any number of requests.
+ */
+@Command(name = "server", header = "@|bold Run JJBMC as a verification server|@")
+public class VerificationServer implements Callable<Integer> {
+    @Option(names = {"-s", "-socket"},
+            description = "Path of a unix domain socket to listen on. If not given, a loopback TCP port is used.")
+    private @Nullable Path socket;
+
+    @Option(names = {"-p", "-port"},
+            description = "Loopback TCP port to listen on. (default 9876)")
+    private int port = 9876;
+
+    @Option(names = {"-h", "-help"}, usageHelp = true,
+            description = "Print usage help and exit.")
+    private boolean usageHelpRequested;
+
+    private static final Set<String> REQUEST_FIELDS =
+            Set.of("file", "function", "unwind", "maxArraySize", "timeout", "jbmcOptions");
+    private static final Pattern NUMBER = Pattern.compile("\\d+");
+    /**
+     * The jbmc options a request may give, with the pattern of their value or null if they take none. They only
+     * change what jbmc checks and how, not which files it reads or writes.
+     */
+    static final Map<String, @Nullable Pattern> JBMC_OPTIONS = jbmcOptions();
+
+    private final Gson gson = new Gson();
+    private final VerificationSession session;
+
+    public VerificationServer() {
+        this(VerificationSession.getDefault());
+    }
+
+    public VerificationServer(VerificationSession session) {
+        this.session = session;
+    }
+
+    public static int run(String... args) {
+        return new CommandLine(new VerificationServer())
+                .setCaseInsensitiveEnumValuesAllowed(true)
+                .setColorScheme(Help.defaultColorScheme(Help.Ansi.AUTO))
+                .execute(args);
+    }
+
+    @Override
+    public Integer call() throws Exception {
+        session.warmUp();
+        try (var server = open()) {
+            info("Verification server listening on %s", server.getLocalAddress());
+            while (server.isOpen()) {
+                var client = server.accept();
+                Thread.ofVirtual().name("jjbmc-client").start(() -> serve(client));
+            }
+        } finally {
+            if (socket != null) {
+                Files.deleteIfExists(socket);
+            }
+        }
+        return 0;
+    }
+
+    private ServerSocketChannel open() throws IOException {
+        SocketAddress address;
+        ServerSocketChannel server;
+        if (socket != null) {
+            Files.deleteIfExists(socket);
+            server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+            address = UnixDomainSocketAddress.of(socket);
+        } else {
+            server = ServerSocketChannel.open(StandardProtocolFamily.INET);
+            address = new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+        }
+        server.bind(address);
+        return server;
+    }
+
+    private void serve(SocketChannel client) {
+        try (client;
+             var in = new BufferedReader(new InputStreamReader(Channels.newInputStream(client), StandardCharsets.UTF_8));
+             var out = new PrintWriter(new OutputStreamWriter(Channels.newOutputStream(client), StandardCharsets.UTF_8), true)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (!line.isBlank()) {
+                    handle(line, out);
+                }
+            }
+        } catch (IOException e) {
+            debug(e);
+        }
+    }
+
+    private void handle(String line, PrintWriter out) {
+        List<String> args;
+        try {
+            args = toArgs((JsonObject) JsonParser.parseString(line));
+        } catch (RuntimeException e) {
+            // e.g. a field of the wrong type or null
+            send(out, message("error").put("message", "Malformed request: " + e.getMessage()));
+            return;
+        }
+        send(out, message("accepted").put("args", args));
+
+        // every job runs in its own workspace, so jobs for files in the same folder can run at the same time
+        try {
+            var options = Main.parseOptions(args.toArray(new String[0]));
+            var operations = new Operations(options, session);
+            operations.addListener(result -> send(out, toJson(result)));
+            send(out, message("done").put("exitCode", operations.call()));
+        } catch (Exception e) {
+            error("Verification job %s failed: %s", args, e.getMessage());
+            debug(e);
+            send(out, message("error").put("message", String.valueOf(e.getMessage())));
+        }
+    }
+
+    /**
+     * Translates a request into JJBMC command line arguments.
+     */
+    static List<String> toArgs(JsonObject request) {
+        if (!request.has("file")) {
+            throw new IllegalArgumentException("missing 'file'");
+        }
+        for (String key : request.keySet()) {
+            if (!REQUEST_FIELDS.contains(key)) {
+                throw new IllegalArgumentException("unknown field '" + key + "'");
+            }
+        }
+        var args = new ArrayList<String>();
+        args.add(positional("file", request));
+        if (request.has("function")) {
+            args.add(positional("function", request));
+        }
+        if (request.has("unwind")) {
+            args.add("-u=" + request.get("unwind").getAsInt());
+        }
+        if (request.has("maxArraySize")) {
+            args.add("-mas=" + request.get("maxArraySize").getAsInt());
+        }
+        if (request.has("timeout")) {
+            args.add("-t=" + request.get("timeout").getAsInt());
+        }
+        if (request.has("jbmcOptions")) {
+            for (var option : request.getAsJsonArray("jbmcOptions")) {
+                args.add("-j=" + checkJbmcOption(option.getAsString()));
+            }
+        }
+        return args;
+    }
+
+    /**
+     * Checks that an entry of {@code jbmcOptions}, which may hold several options separated by spaces, only
+     * consists of allowed options and their values.
+     */
+    private static String checkJbmcOption(String option) {
+        var tokens = option.trim().split(" +");
+        for (int i = 0; i < tokens.length; i++) {
+            if (!JBMC_OPTIONS.containsKey(tokens[i])) {
+                throw new IllegalArgumentException("jbmc option '" + tokens[i] + "' is not allowed");
+            }
+            var value = JBMC_OPTIONS.get(tokens[i]);
+            if (value != null && (++i >= tokens.length || !value.matcher(tokens[i]).matches())) {
+                throw new IllegalArgumentException("jbmc option '" + tokens[i - 1] + "' needs a value like " + value);
+            }
+        }
+        return option;
+    }
+
+    private static Map<String, @Nullable Pattern> jbmcOptions() {
+        var options = new HashMap<String, @Nullable Pattern>();
+        for (String flag : List.of("--java-assume-inputs-non-null", "--unwinding-assertions",
+                "--no-unwinding-assertions", "--refine", "--refine-arrays", "--refine-arithmetic", "--nondet-static",
+                "--throw-runtime-exceptions", "--disable-uncaught-exception-check", "--java-threading")) {
+            options.put(flag, null);
+        }
+        for (String option : List.of("--unwind", "--depth", "--max-nondet-tree-depth", "--max-nondet-array-length",
+                "--max-nondet-string-length", "--java-max-vla-length")) {
+            options.put(option, NUMBER);
+        }
+        options.put("--paths", Pattern.compile("lifo|fifo"));
+        return Collections.unmodifiableMap(options);
+    }
+
+    /**
+     * A positional argument, which must not be taken for an option.
+     */
+    private static String positional(String key, JsonObject request) {
+        var value = request.get(key).getAsString();
+        if (value.startsWith("-")) {
+            throw new IllegalArgumentException("'" + key + "' must not start with '-'");
+        }
+        return value;
+    }
+
+    static Message toJson(VerificationResult result) {
+        var message = message("result")
+                .put("function", result.getFunctionName())
+                .put("status", result.getStatus().name())
+                .put("time", result.getTime())
+                .put("cached", result.isCached())
+                .put("unwind", result.getUnwind());
+        if (result.getConfiguration() != null) {
+            message.put("configuration", result.getConfiguration());
+        }
+        var resources = result.getResources();
+        if (resources != null) {
+            message.put("cpuTime", resources.cpuTime())
+                    .put("userTime", resources.userTime())
+                    .put("systemTime", resources.systemTime())
+                    .put("peakRss", resources.peakRss());
+        }
+        JBMCOutput output = result.getOutput();
+        if (output != null) {
+            message.put("proverStatus", output.getProverStatus().trim());
+            var failures = new JsonArray();
+            for (int i = 0; i < output.getProperties().size(); i++) {
+                var failure = new JsonObject();
+                failure.addProperty("property", output.getProperties().get(i));
+                failure.addProperty("line", output.getLineNumbers().get(i));
+                failure.addProperty("reason", output.getReasons().get(i));
+                failure.addProperty("assertion", output.getAsserts().get(i));
+                failures.add(failure);
+            }
+            message.json.add("failures", failures);
+            var errors = new JsonArray();
+            output.getErrors().forEach(errors::add);
+            message.json.add("errors", errors);
+        }
+        var sanityCheck = result.getSanityCheck();
+        if (sanityCheck != null) {
+            var sanityOutput = sanityCheck.getOutput();
+            message.put("sanityCheck", sanityCheck.getStatus() != VerificationResult.Status.DONE || sanityOutput == null
+                    ? sanityCheck.getStatus().name()
+                    : sanityOutput.printStatus().contains("SUCC") ? "FAILED" : "OK");
+        }
+        return message;
+    }
+
+    private void send(PrintWriter out, Message message) {
+        synchronized (out) {
+            out.println(gson.toJson(message.json));
+        }
+    }
+
+    private static Message message(String type) {
+        return new Message(new JsonObject()).put("type", type);
+    }
+
+    record Message(JsonObject json) {
+        Message put(String key, Object value) {
+            if (value instanceof Number n) {
+                json.addProperty(key, n);
+            } else if (value instanceof Boolean b) {
+                json.addProperty(key, b);
+            } else if (value instanceof List<?> list) {
+                var array = new JsonArray();
+                list.forEach(it -> array.add(String.valueOf(it)));
+                json.add(key, array);
+            } else {
+                json.addProperty(key, String.valueOf(value));
+            }
+            return this;
+        }
+    }
+}
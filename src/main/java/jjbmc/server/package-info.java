@@ -0,0 +1,3 @@
+@NullMarked package jjbmc.server;
+
+import org.jspecify.annotations.NullMarked;
\ No newline at end of file
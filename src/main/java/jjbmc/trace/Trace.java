@@ -21,15 +21,17 @@ public class Trace {
 
     private final boolean fullTraceRequested;
     private final int maxArraySize;
+    private final TraceInformation traceInformation;
 
-    public Trace(List<Assignment> assignments) {
-        this(assignments, false, 10);
+    public Trace(List<Assignment> assignments, TraceInformation traceInformation) {
+        this(assignments, false, 10, traceInformation);
     }
 
-    public Trace(List<Assignment> assignments, boolean fullTraceRequested, int maxArraySize) {
+    public Trace(List<Assignment> assignments, boolean fullTraceRequested, int maxArraySize, TraceInformation traceInformation) {
         this.allAssignments = assignments;
         this.fullTraceRequested = fullTraceRequested;
         this.maxArraySize = maxArraySize;
+        this.traceInformation = traceInformation;
     }
 
     private boolean isRelevantVar(@Nullable String var) {
@@ -76,7 +78,7 @@ public class Trace {
             group.add(trace.get(idx));
             int newIdx = idx;
             for (int i = idx; i < trace.size() - 1 &&
-                    !TraceInformation.isActualNewLine(trace.get(idx).getLineNumber(), trace.get(i + 1).getLineNumber()); ++i) {
+                    !traceInformation.isActualNewLine(trace.get(idx).getLineNumber(), trace.get(i + 1).getLineNumber()); ++i) {
                 newIdx = i + 1;
                 group.add(trace.get(i + 1));
             }
@@ -295,7 +297,7 @@ public class Trace {
             if (isRelevantValue(a.getValue())) {
                 a.setGuess(guessVariable(a.getJbmcVarname()));
                 if (a.getGuess() != null && a.getParameterName() != null) {
-                    String method = TraceInformation.getMethod(TraceInformation.getStartingLineForMethodAt(a.getLineNumber()));
+                    String method = traceInformation.getMethod(traceInformation.getStartingLineForMethodAt(a.getLineNumber()));
                     if (a.getParameterName().contains(method)) {
                         if (!a.getGuess().isEmpty()) {
                             relevantVars.add(a.getGuess());
@@ -303,7 +305,7 @@ public class Trace {
                     }
                 }
             }
-            a.setLineNumber(TraceInformation.getOriginalLine(a.getLineNumber()));
+            a.setLineNumber(traceInformation.getOriginalLine(a.getLineNumber()));
         }
     }
 
@@ -1,11 +1,14 @@
 package jjbmc.trace;
 
 import com.github.javaparser.utils.Pair;
-import jjbmc.TranslationException;
 import org.jspecify.annotations.Nullable;
 
 import java.util.*;
 
+/**
+ * Maps between the translated file and the original source, collected for a single verification run.
+ * Only the pure helpers for cleaning up jbmc values are static.
+ */
 public class TraceInformation {
     public static final List<String> ignoredVars = new ArrayList<>(Arrays.asList("enableAssume",
             "enableNondet",
@@ -18,18 +21,23 @@ public class TraceInformation {
             "@class_identifier",
             "tmp",
             "assertionsDisabled"));
-    private static final SortedMap<Integer, Integer> lineMap = new TreeMap<>();
-    private static final SortedMap<Integer, String> methods = new TreeMap<>();
-    private static final SortedMap<Integer, Set<String>> assertVars = new TreeMap<>();
-    private static final SortedMap<Integer, String> asserts = new TreeMap<>();
-    private static final Map<String, String> expressionMap = new HashMap<>();
+    private final SortedMap<Integer, Integer> lineMap = new TreeMap<>();
+    private final SortedMap<Integer, String> methods = new TreeMap<>();
+    private final SortedMap<Integer, Set<String>> assertVars = new TreeMap<>();
+    private final SortedMap<Integer, String> asserts = new TreeMap<>();
+    private final Map<String, String> expressionMap = new HashMap<>();
 
-    public static void reset() {
+    public TraceInformation() {
+        reset();
+    }
+
+    public void reset() {
         lineMap.clear();
         methods.clear();
         asserts.clear();
         assertVars.clear();
         expressionMap.clear();
+        expressionMap.put("returnVar", "\\result");
     }
 
     public static boolean isRelevantValue(String value) {
@@ -40,7 +48,7 @@ public class TraceInformation {
         //}
     }
 
-    public static String getMethod(int lineNumber) {
+    public String getMethod(int lineNumber) {
         return methods.get(lineNumber);
     }
 
@@ -62,28 +70,32 @@ public class TraceInformation {
         return false;
     }
 
-    public static void addLineEquality(int printed, int orig) {
-        lineMap.put(printed, orig);
+    /**
+     * Maps a line of the translated file to a line of the original source. The first mapping of a line wins.
+     */
+    public void addLineEquality(int printed, int orig) {
+        lineMap.putIfAbsent(printed, orig);
     }
 
-    public static void setExpressionMap(Map<String, String> expressionMap) {
-        TraceInformation.expressionMap.clear();
-        TraceInformation.expressionMap.putAll(expressionMap);
+    public void setExpressionMap(Map<String, String> expressionMap) {
+        this.expressionMap.clear();
+        this.expressionMap.put("returnVar", "\\result");
+        this.expressionMap.putAll(expressionMap);
     }
 
-    public static void addMethod(int line, String name) {
+    public void addMethod(int line, String name) {
         methods.put(line, name);
     }
 
-    public static void addAssert(int line, String ass) {
+    public void addAssert(int line, String ass) {
         asserts.put(line, ass);
     }
 
-    public static void addAssertVars(int line, Set<String> vars) {
+    public void addAssertVars(int line, Set<String> vars) {
         assertVars.put(line, vars);
     }
 
-    public static int getStartingLineForMethodAt(int line) {
+    public int getStartingLineForMethodAt(int line) {
         int idx = methods.firstKey();
         for (int k : methods.keySet()) {
             if (line < k) {
@@ -96,30 +108,29 @@ public class TraceInformation {
     }
 
 
-    public static String getAssertForLine(int line) {
-        if (!asserts.containsKey(line)) {
-            throw new TranslationException("Tried to access assert for line " + line + " but found none.");
-        }
-
+    /**
+     * The text of the assert in the line of the translated file, null if none was recorded for it.
+     */
+    public @Nullable String getAssertForLine(int line) {
         return asserts.get(line);
     }
 
 
-    public static int getOriginalLine(int line) {
+    public int getOriginalLine(int line) {
         if (!lineMap.containsKey(line)) {
             return -1;
         }
         return lineMap.get(line);
     }
 
-    public static Set<String> getAssertVarsForLine(int line) {
-        if (!assertVars.containsKey(line)) {
-            throw new RuntimeException("No assert found in line: " + line + " but requested variables for it.");
-        }
-        return assertVars.get(line);
+    /**
+     * The variables of the assert in the line of the translated file, empty if none were recorded for it.
+     */
+    public Set<String> getAssertVarsForLine(int line) {
+        return assertVars.getOrDefault(line, new HashSet<>());
     }
 
-    public static Pair<Integer, Integer> getRelevantRange(int lineIn) {
+    public Pair<Integer, Integer> getRelevantRange(int lineIn) {
         int begin = -1;
         for (int line : methods.keySet()) {
             if (line <= lineIn) {
@@ -131,7 +142,7 @@ public class TraceInformation {
         return null;
     }
 
-    public static boolean isActualNewLine(int oldLine, int newLine) {
+    public boolean isActualNewLine(int oldLine, int newLine) {
         Pair<Integer, Integer> range = getRelevantRange(oldLine);
         return newLine != oldLine && newLine >= range.a && newLine < range.b;
     }
@@ -140,13 +151,9 @@ public class TraceInformation {
     private void addRelevantVar(String guess, int lineNumber) {
         Pair<Integer, Integer> range = getRelevantRange(lineNumber);
         for (int i = range.a; i <= range.b; ++i) {
-            try {
-                Set<String> assertVarsForLine = getAssertVarsForLine(i);
-                if (assertVarsForLine != null) {
-                    assertVarsForLine.add(guess);
-                }
-            } catch (RuntimeException e) {
-                //thats ok in this case
+            Set<String> assertVarsForLine = assertVars.get(i);
+            if (assertVarsForLine != null) {
+                assertVarsForLine.add(guess);
             }
         }
     }
@@ -182,8 +189,7 @@ public class TraceInformation {
     }
 
 
-    public static @Nullable String applyExpressionMap(@Nullable String lhs) {
-        expressionMap.put("returnVar", "\\result");
+    public @Nullable String applyExpressionMap(@Nullable String lhs) {
         if (lhs == null) {
             return null;
         }
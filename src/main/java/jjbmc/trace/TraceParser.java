@@ -1,37 +1,38 @@
 package jjbmc.trace;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
-import java.io.StringReader;
-import java.io.StringWriter;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
+import java.util.function.Consumer;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import jjbmc.Assignment;
 import jjbmc.ErrorLogger;
 import jjbmc.JBMCOutput;
-import com.github.javaparser.utils.Pair;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.xml.sax.InputSource;
-import org.xml.sax.SAXException;
+import jjbmc.JJBMCOptions;
+import jjbmc.Metrics;
+import jjbmc.VerificationContext;
+import org.jspecify.annotations.Nullable;
 
 import static jjbmc.ErrorLogger.*;
 
+/**
+ * Reads the {@code --xml-ui} output of jbmc with a StAX parser while it is written. Only messages, the results and
+ * the prover status are kept; the assignments of a trace are only materialised for failing properties and only
+ * if traces are requested.
+ */
 public class TraceParser {
     private static final ErrorLogger log = new ErrorLogger();
+    private static final XMLInputFactory xmlInputFactory = createInputFactory();
 
     private static final String jbmcBanner = """
 
@@ -41,21 +42,38 @@ public class TraceParser {
             * * Carnegie Mellon University, Computer Science Department * *
             * *                  kroening@kroening.com                  * *""";
 
-    public static JBMCOutput parse(File xmlFile, boolean printTrace) throws ParserConfigurationException, IOException, SAXException {
-        DocumentBuilder builder;
-        builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
-        Document doc = builder.parse(xmlFile);
-        return parse(doc, printTrace);
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
     }
 
-    public static JBMCOutput parse(String xmlContent, boolean printTrace) throws ParserConfigurationException, SAXException, IOException {
-        DocumentBuilder builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+    public static JBMCOutput parse(File xmlFile, boolean printTrace) throws XMLStreamException, IOException {
+        return parse(xmlFile, printTrace, new VerificationContext(new JJBMCOptions()));
+    }
+
+    public static JBMCOutput parse(File xmlFile, boolean printTrace, VerificationContext context)
+            throws XMLStreamException, IOException {
+        return parse(xmlFile, printTrace, context, "");
+    }
+
+    /**
+     * @param functionName the function jbmc checked, the time to reconstruct its traces is recorded for it
+     */
+    public static JBMCOutput parse(File xmlFile, boolean printTrace, VerificationContext context, String functionName)
+            throws XMLStreamException, IOException {
+        try (InputStream in = Files.newInputStream(xmlFile.toPath())) {
+            return parse(in, printTrace, context, functionName, property -> {
+            });
+        }
+    }
+
+    public static JBMCOutput parse(String xmlContent, boolean printTrace, VerificationContext context)
+            throws XMLStreamException {
         try {
-            InputSource is = new InputSource(new StringReader(xmlContent));
-            Document doc = builder.parse(is);
-            doc.getDocumentElement().normalize();
-            return parse(doc, printTrace);
-        } catch (SAXException | IOException e) {
+            return parse(new ByteArrayInputStream(xmlContent.getBytes(StandardCharsets.UTF_8)), printTrace, context);
+        } catch (XMLStreamException e) {
             if (xmlContent.startsWith(jbmcBanner)) {
                 error("Error calling jbmc. Possibly provided faulty jbmc-arguments?");
             }
@@ -63,134 +81,284 @@ public class TraceParser {
         }
     }
 
-    public static JBMCOutput parse(Document xmlDoc, boolean printTrace) {
-        JBMCOutput res = new JBMCOutput();
+    /**
+     * Parses the output of jbmc incrementally from the given stream, e.g. directly from the pipe of the jbmc process.
+     */
+    public static JBMCOutput parse(InputStream xml, boolean printTrace, VerificationContext context) throws XMLStreamException {
+        return parse(xml, printTrace, context, "", property -> {
+        });
+    }
+
+    /**
+     * Like {@link #parse(InputStream, boolean, VerificationContext)}, but reports the name of every failed property
+     * as soon as its result (including the trace) was read, before the rest of the output is available.
+     *
+     * @param functionName the function jbmc checked, the time to reconstruct its traces is recorded for it
+     */
+    public static JBMCOutput parse(InputStream xml, boolean printTrace, VerificationContext context,
+                                   String functionName, Consumer<String> onFailure) throws XMLStreamException {
+        XMLStreamReader reader = xmlInputFactory.createXMLStreamReader(xml);
         try {
-            Trace trace = null;
-            xmlDoc.getDocumentElement().normalize();
-            NodeList messageList = xmlDoc.getElementsByTagName("message");
-            for (int i = 0; i < messageList.getLength(); ++i) {
-                if (((Element) (messageList.item(i))).getAttribute("type").equals("ERROR")) {
-                    res.getErrors().add(messageList.item(i).getTextContent());
-                } else {
-                    res.getMessages().add(messageList.item(i).getTextContent());
+            var handler = new OutputHandler(printTrace, context.getTraceInformation(), onFailure);
+            int depth = 0;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                    handler.start(reader);
+                    if (reader.getEventType() == XMLStreamConstants.END_ELEMENT) {
+                        // the handler read the whole element
+                        depth--;
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    handler.end(reader.getLocalName());
+                    if (--depth == 0) {
+                        // whatever follows the root element is not parsed
+                        break;
+                    }
                 }
             }
-            if (!res.getErrors().isEmpty()) {
-                res.setProverStatus("ERROR");
-                return res;
+            if (handler.traceTime > 0) {
+                context.getMetrics().record(Metrics.TRACE, context.fileLabel(), functionName, handler.traceTime);
             }
-            NodeList statusList = xmlDoc.getElementsByTagName("cprover-status");
-            assert statusList.getLength() == 1;
-            res.setProverStatus(statusList.item(0).getTextContent());
-            if (!printTrace) {
-                return res;
+            return handler.finish();
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Reads the property names from the xml output of {@code jbmc --show-properties --xml-ui}.
+     */
+    public static List<String> parsePropertyNames(String xmlContent) throws XMLStreamException {
+        XMLStreamReader reader = xmlInputFactory.createXMLStreamReader(
+                new ByteArrayInputStream(xmlContent.getBytes(StandardCharsets.UTF_8)));
+        try {
+            List<String> names = new ArrayList<>();
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT && reader.getLocalName().equals("property")) {
+                    names.add(attribute(reader, "name"));
+                }
             }
-            NodeList propertyNodeList = xmlDoc.getElementsByTagName("result");
-            String reason;
-            for (int i = 0; i < propertyNodeList.getLength(); ++i) {
-                reason = null;
-                Node propertyNode = propertyNodeList.item(i);
-                if (propertyNode.getNodeType() == Node.ELEMENT_NODE) {
-                    Element propertyElemnt = (Element) propertyNode;
-                    int lineNumber = -1;
-                    if (propertyElemnt.getAttribute("status").equals("FAILURE")) {
-
-                        Element failure = (Element) propertyElemnt
-                                .getElementsByTagName("failure")
-                                .item(0);
-                        reason = failure.getAttribute("reason");
-                        Element location = (Element) failure
-                                .getElementsByTagName("location")
-                                .item(0);
-                        if (location == null) {
-                            if (propertyElemnt.getAttribute("property").contains("unwind")) {
-                                res.addProperty("Unwinding assertion",
-                                        new Trace(new ArrayList<>()),
-                                        -1,
-                                        "Try to increase the unwinding parameter.", null);
-                                return res;
-                            } else {
-                                throw new Exception("location was null.");
-                            }
-                        } else {
-                            lineNumber = Integer.parseInt(location.getAttribute("line"));
-                        }
-                        Pair<Integer, Integer> relevantRange = TraceInformation.getRelevantRange(lineNumber);
-                        NodeList assignmentList = ((Element) propertyNode).getElementsByTagName("assignment");
-                        List<Assignment> assignments = new ArrayList<>();
-                        List<Assignment> lineAssignments = new ArrayList<>();
-                        int lastLine = -1;
-                        for (int j = 0; j < assignmentList.getLength(); ++j) {
-                            Element assignment = (Element) assignmentList.item(j);
-                            if (assignment.getElementsByTagName("location").getLength() > 0) {
-                                Element location1 = (Element) assignment.getElementsByTagName("location").item(0);
-                                Element lhs = (Element) assignment.getElementsByTagName("full_lhs").item(0);
-                                Element value = (Element) assignment.getElementsByTagName("full_lhs_value").item(0);
-                                int line = Integer.parseInt(location1.getAttribute("line"));
-                                //int origLine = TraceInformation.getOriginalLine(line);
-                                if (line > lastLine && line < relevantRange.b && line >= relevantRange.a) {
-                                    //trace.provideGuesses(lineAssignments);
-                                    lineAssignments = new ArrayList<>();
-                                    lastLine = line;
-                                }
-                                String parameterName = null;
-                                if (assignment.getAttribute("assignment_type").equals("actual_parameter")) {
-                                    parameterName = assignment.getAttribute("display_name");
-                                }
-                                Assignment assignment1 = new Assignment(line,
-                                        lhs.getTextContent(), value.getTextContent(), null, parameterName);
-                                lineAssignments.add(assignment1);
-                                assignments.add(assignment1);
+            return names;
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Collects the output while the elements stream by. A result is turned into a property of the output when its
+     * end tag is reached, as the failure with its location comes after the assignments of the trace.
+     */
+    private static final class OutputHandler {
+        private final boolean printTrace;
+        private final TraceInformation traceInformation;
+        private final Consumer<String> onFailure;
+        private final JBMCOutput res = new JBMCOutput();
+        private String proverStatus = "";
+        /**
+         * Set after an unwinding assertion failed or a result could not be read; later results are not added anymore.
+         */
+        private boolean stopped;
+        /**
+         * Nanoseconds spent on turning the assignments of failing results into traces.
+         */
+        private long traceTime;
+
+        private @Nullable String property;
+        private boolean failing;
+        private boolean inFailure;
+        private boolean failureSeen;
+        private @Nullable String reason;
+        private int failureLine = -1;
+        private final List<Assignment> assignments = new ArrayList<>();
+
+        private boolean inAssignment;
+        private int assignmentLine = -1;
+        private @Nullable String lhs;
+        private @Nullable String value;
+        private @Nullable String parameterName;
+
+        private OutputHandler(boolean printTrace, TraceInformation traceInformation, Consumer<String> onFailure) {
+            this.printTrace = printTrace;
+            this.traceInformation = traceInformation;
+            this.onFailure = onFailure;
+        }
+
+        void start(XMLStreamReader reader) throws XMLStreamException {
+            switch (reader.getLocalName()) {
+                case "message" -> {
+                    boolean isError = attribute(reader, "type").equals("ERROR");
+                    String text = readText(reader);
+                    (isError ? res.getErrors() : res.getMessages()).add(text);
+                }
+                case "cprover-status" -> proverStatus = readText(reader);
+                case "result" -> {
+                    property = attribute(reader, "property");
+                    failing = attribute(reader, "status").equals("FAILURE");
+                    res.getPropertyStatus().put(property, attribute(reader, "status"));
+                    if (failing) {
+                        res.getFailedProperties().add(property);
+                    }
+                    failureSeen = false;
+                    reason = null;
+                    failureLine = -1;
+                    assignments.clear();
+                }
+                case "failure" -> {
+                    if (failing && !failureSeen) {
+                        failureSeen = true;
+                        inFailure = true;
+                        reason = attribute(reader, "reason");
+                    }
+                }
+                case "location" -> {
+                    var line = attribute(reader, "line");
+                    if (line.isEmpty()) {
+                        break;
+                    }
+                    if (inFailure && failureLine < 0) {
+                        failureLine = Integer.parseInt(line);
+                    } else if (inAssignment && assignmentLine < 0) {
+                        assignmentLine = Integer.parseInt(line);
+                    }
+                }
+                case "assignment" -> {
+                    if (failing && printTrace && !stopped) {
+                        inAssignment = true;
+                        assignmentLine = -1;
+                        lhs = null;
+                        value = null;
+                        parameterName = attribute(reader, "assignment_type").equals("actual_parameter")
+                                ? attribute(reader, "display_name")
+                                : null;
+                    }
+                }
+                case "full_lhs" -> {
+                    if (inAssignment && lhs == null) {
+                        lhs = readText(reader);
+                    }
+                }
+                case "full_lhs_value" -> {
+                    if (inAssignment && value == null) {
+                        value = readText(reader);
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+
+        void end(String name) {
+            switch (name) {
+                case "failure" -> inFailure = false;
+                case "assignment" -> {
+                    if (inAssignment && assignmentLine >= 0 && lhs != null && value != null) {
+                        assignments.add(new Assignment(assignmentLine, lhs, value, null, parameterName));
+                    }
+                    inAssignment = false;
+                }
+                case "result" -> {
+                    if (!stopped && property != null) {
+                        long start = System.nanoTime();
+                        try {
+                            addResult(property);
+                        } catch (RuntimeException e) {
+                            // the trace does not fit the translation, keep what was read so far
+                            info("Error parsing xml file.");
+                            debug(e);
+                            stopped = true;
+                        } finally {
+                            if (failing && printTrace) {
+                                traceTime += System.nanoTime() - start;
                             }
                         }
-                        trace = extractTrace(assignments);
-                        if (reason.contains("assertion")) {
-                            trace.setRelevantVars(TraceInformation.getAssertVarsForLine(lineNumber));
-                        }
                     }
-                    if (lineNumber < 0) {
-                        res.addProperty(propertyElemnt.getAttribute("property"), null, lineNumber, null, null);
-                    } else {
-                        if (reason.contains("assertion")) {
-                            res.addProperty(propertyElemnt.getAttribute("property"),
-                                    trace,
-                                    TraceInformation.getOriginalLine(lineNumber),
-                                    reason,
-                                    TraceInformation.getAssertForLine(lineNumber));
-                        } else {
-                            res.addProperty(propertyElemnt.getAttribute("property"),
-                                    trace,
-                                    TraceInformation.getOriginalLine(lineNumber),
-                                    reason,
-                                    null);
-                        }
+                    if (failing && property != null) {
+                        onFailure.accept(property);
                     }
+                    property = null;
+                    failing = false;
+                }
+                default -> {
+                }
+            }
+        }
+
+        /**
+         * Records the line and reason of a failing property, and with traces also the trace and the passing properties.
+         */
+        private void addResult(String property) {
+            if (!failing) {
+                if (printTrace) {
+                    res.addProperty(property, null, -1, null, null);
                 }
+                return;
             }
-        } catch (Exception e) {
-            info("Error parsing xml file.");
-            TransformerFactory tf = TransformerFactory.newInstance();
-            Transformer transformer;
-            try {
-                transformer = tf.newTransformer();
-                transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
-                transformer.setOutputProperty(OutputKeys.INDENT, "no");
-                StringWriter writer = new StringWriter();
-                transformer.transform(new DOMSource(xmlDoc), new StreamResult(writer));
-                String output = writer.toString();
-                debug(output);
-            } catch (TransformerException ex) {
-                ex.printStackTrace();
+            if (reason == null || failureLine < 0) {
+                stopped = true;
+                if (property.contains("unwind")) {
+                    res.addProperty("Unwinding assertion",
+                            new Trace(new ArrayList<>(), traceInformation),
+                            -1,
+                            "Try to increase the unwinding parameter.", null);
+                } else {
+                    info("Error parsing xml file.");
+                    debug("The failure of property %s has no location.", property);
+                }
+                return;
+            }
+            Trace trace = printTrace ? extractTrace(new ArrayList<>(assignments), traceInformation) : null;
+            if (reason.contains("assertion")) {
+                if (trace != null) {
+                    trace.setRelevantVars(traceInformation.getAssertVarsForLine(failureLine));
+                }
+                res.addProperty(property, trace, traceInformation.getOriginalLine(failureLine), reason,
+                        traceInformation.getAssertForLine(failureLine));
+            } else {
+                res.addProperty(property, trace, traceInformation.getOriginalLine(failureLine), reason, null);
             }
-            e.printStackTrace();
         }
 
-        return res;
+        JBMCOutput finish() {
+            if (!res.getErrors().isEmpty()) {
+                var failed = new JBMCOutput();
+                failed.getMessages().addAll(res.getMessages());
+                failed.getErrors().addAll(res.getErrors());
+                failed.setProverStatus("ERROR");
+                return failed;
+            }
+            res.setProverStatus(proverStatus);
+            return res;
+        }
+    }
+
+    private static String attribute(XMLStreamReader reader, String name) {
+        var value = reader.getAttributeValue(null, name);
+        return value == null ? "" : value;
+    }
+
+    /**
+     * Reads the text of the current element and all its children, up to and including its end tag.
+     */
+    private static String readText(XMLStreamReader reader) throws XMLStreamException {
+        var sb = new StringBuilder();
+        int depth = 1;
+        while (depth > 0) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT -> depth++;
+                case XMLStreamConstants.END_ELEMENT -> depth--;
+                case XMLStreamConstants.CHARACTERS, XMLStreamConstants.CDATA, XMLStreamConstants.SPACE ->
+                        sb.append(reader.getText());
+                default -> {
+                }
+            }
+        }
+        return sb.toString();
     }
 
-    public static Trace extractTrace(List<Assignment> assignments) {
-        return new Trace(assignments);
+    public static Trace extractTrace(List<Assignment> assignments, TraceInformation traceInformation) {
+        return new Trace(assignments, traceInformation);
     }
 
     private static String getOriginalName(String[] exprs, Map<String, String> exprMap) {
@@ -0,0 +1,62 @@
+package jjbmc;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BudgetSchedulerTest {
+    @TempDir
+    Path tmp;
+
+    @Test
+    public void cheapFunctionsFirstAndLeftoverForExpensiveOnes() {
+        var history = CostHistory.load(tmp.resolve("costs.json"));
+        history.record("cheap", 100, false);
+        history.record("hard", 9000, false);
+
+        var scheduler = new BudgetScheduler(60_000, 1, history);
+        assertEquals(List.of("cheap", "new", "hard"),
+                scheduler.order(List.of("hard", "cheap", "new"), List::of));
+
+        int cheap = scheduler.timeoutFor("cheap");
+        assertTrue(cheap >= 100 && cheap < 1000, "cheap got " + cheap);
+        scheduler.timeoutFor("new");
+        // the budget the others did not take goes to the last function
+        assertTrue(scheduler.timeoutFor("hard") > 50_000);
+    }
+
+    @Test
+    public void historySurvivesSaveAndTimeoutsRaiseTheEstimate() {
+        var file = tmp.resolve("costs.json");
+        var history = CostHistory.load(file);
+        history.record("f", 1000, false);
+        history.record("f", 3000, false);
+        history.record("g", 5000, true);
+        history.save();
+
+        var loaded = CostHistory.load(file);
+        assertEquals(2000, loaded.estimate("f"));
+        assertEquals(10000, loaded.estimate("g"));
+        assertEquals(CostHistory.DEFAULT_ESTIMATE, loaded.estimate("h"));
+    }
+
+    @Test
+    public void repeatedTimeoutsDoNotOverflow() {
+        var history = CostHistory.load(tmp.resolve("costs.json"));
+        for (int i = 0; i < 100; i++) {
+            history.record("f", 60_000, true);
+        }
+        assertEquals(CostHistory.MAX_ESTIMATE, history.estimate("f"));
+
+        var scheduler = new BudgetScheduler(Long.MAX_VALUE / 2, 64, history);
+        scheduler.order(List.of("f", "g"), List::of);
+        assertTrue(scheduler.timeoutFor("g") > 0);
+        assertEquals(Integer.MAX_VALUE, scheduler.timeoutFor("f"));
+        assertEquals(Long.MAX_VALUE / 4, BudgetScheduler.share(Long.MAX_VALUE / 2, 1000, 2000), 1e3);
+    }
+}
@@ -0,0 +1,58 @@
+package jjbmc;
+
+import com.github.javaparser.StaticJavaParser;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ReachableClassesTest {
+    private static final String SOURCE = """
+            package pkg;
+            class A {
+                Shape shape;
+                void fooVerification() { Helper.area(shape); }
+                void barVerification() { new Unused(); }
+                void bazVerification() { pkg.Helper.area(null); }
+                void quxVerification() { java.util.function.Supplier<Object> s = lib.Lists::new; }
+                static class Nested { }
+            }
+            class Helper {
+                static int area(Shape s) { return s.area(); }
+            }
+            interface Shape { int area(); }
+            class Circle implements Shape { public int area() { return 3; } }
+            class Unused { Object f = new Object() { }; }
+            """;
+
+    private static final String LIBRARY = """
+            package lib;
+            public class Lists { }
+            """;
+
+    private static Set<String> unreachable(String methodName) {
+        return ReachableClasses.unreachable(List.of(StaticJavaParser.parse(SOURCE), StaticJavaParser.parse(LIBRARY)),
+                "pkg.A", methodName);
+    }
+
+    @Test
+    public void onlyWhatTheMethodReachesIsLoaded() {
+        // Circle may be the dynamic type of shape
+        assertEquals(Set.of("pkg.A$Nested", "pkg.Unused", "lib.Lists"), unreachable("fooVerification"));
+        // the field of A is reachable from every method
+        assertEquals(Set.of("pkg.A$Nested", "pkg.Helper", "lib.Lists"), unreachable("barVerification"));
+    }
+
+    @Test
+    public void qualifiedNamesAreReachable() {
+        assertEquals(Set.of("pkg.A$Nested", "pkg.Unused", "lib.Lists"), unreachable("bazVerification"));
+        assertEquals(Set.of("pkg.A$Nested", "pkg.Helper", "pkg.Unused"), unreachable("quxVerification"));
+    }
+
+    @Test
+    public void unknownEntryLoadsEverything() {
+        assertEquals(Set.of(), ReachableClasses.unreachable(List.of(StaticJavaParser.parse(SOURCE)), "pkg.B", "f"));
+    }
+}
@@ -0,0 +1,65 @@
+package jjbmc;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisabledOnOs(OS.WINDOWS)
+public class ToolchainTest {
+    @TempDir
+    Path tmp;
+
+    /**
+     * A fake jbmc, which counts how often it was run.
+     */
+    private Path fakeJbmc(String version) throws Exception {
+        var binary = tmp.resolve("jbmc");
+        Files.writeString(binary, """
+                #!/bin/sh
+                echo run >> "%s"
+                if [ "$1" = "--version" ]; then echo "%s (cbmc-%s)"; else echo "--unwind n  --java-load-class c"; fi
+                """.formatted(tmp.resolve("runs"), version, version));
+        Files.setPosixFilePermissions(binary, PosixFilePermissions.fromString("rwxr-xr-x"));
+        return binary;
+    }
+
+    private long runs() throws Exception {
+        return Files.readAllLines(tmp.resolve("runs")).size();
+    }
+
+    @Test
+    public void probesOncePerBinary() throws Exception {
+        var binary = fakeJbmc("6.0.1");
+        var cache = tmp.resolve("cache/toolchain.json");
+
+        var probe = new Toolchain(cache).jbmc(binary.toString(), false);
+        assertEquals(6, probe.major());
+        assertEquals(0, probe.minor());
+        assertTrue(probe.supports("--java-load-class"));
+        assertTrue(JbmcFacade.verifyJBMCVersion(probe));
+        long runs = runs();
+
+        // a new JVM reads the cache file
+        var cached = new Toolchain(cache).jbmc(binary.toString(), false);
+        assertEquals(probe, cached);
+        assertEquals(runs, runs());
+
+        // a changed binary is probed again
+        fakeJbmc("5.12.0");
+        Files.setLastModifiedTime(binary, FileTime.fromMillis(probe.modified() + 1000));
+        var changed = new Toolchain(cache).jbmc(binary.toString(), false);
+        assertEquals(5, changed.major());
+        assertTrue(runs() > runs);
+        assertFalse(JbmcFacade.verifyJBMCVersion(changed));
+    }
+}
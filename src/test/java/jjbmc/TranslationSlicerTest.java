@@ -0,0 +1,50 @@
+package jjbmc;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TranslationSlicerTest {
+    private static final String SOURCE = """
+            class A {
+                int f;
+                int g;
+                static int counter = next();
+                void fooVerification() {
+                    barContract();
+                }
+                void barContract() {
+                    f = 1;
+                }
+                /** not called */
+                void bazVerification() {
+                    g = 2;
+                }
+                static int next() {
+                    return 1;
+                }
+                public String toString() {
+                    return "A";
+                }
+            }
+            """;
+
+    @Test
+    public void unreachableMembersBecomeEmptyLines() {
+        var slice = TranslationSlicer.slice(SOURCE, "fooVerification");
+        assertNotNull(slice);
+        // the line numbers in the output of jbmc stay the same
+        assertEquals(SOURCE.lines().count(), slice.lines().count());
+        assertTrue(slice.contains("barContract()"));
+        assertTrue(slice.contains("int f;"));
+        assertFalse(slice.contains("int g;"));
+        assertFalse(slice.contains("bazVerification"));
+        assertFalse(slice.contains("not called"));
+        // initializers with side effects and methods called by the JDK stay
+        assertTrue(slice.contains("static int next()"));
+        assertTrue(slice.contains("toString"));
+    }
+}
@@ -0,0 +1,55 @@
+package jjbmc;
+
+import com.github.javaparser.StaticJavaParser;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+public class VerdictCacheTest {
+    private static final String SOURCE = """
+            class A {
+                int f;
+                void fooVerification() { bar(); }
+                void bar() { f = 1; }
+                void bazVerification() { f = 2; }
+            }
+            """;
+
+    private static String key(String source, String function) throws Exception {
+        var options = new JJBMCOptions();
+        options.setFileName(Paths.get("A.java"));
+        options.setMaxArraySize(3);
+        return VerdictCache.key(StaticJavaParser.parse(source), function, 5, options, List.of(), "5.95.1");
+    }
+
+    @Test
+    public void keyDependsOnlyOnReachableMethods() throws Exception {
+        var changedBaz = SOURCE.replace("f = 2", "f = 3");
+        var changedBar = SOURCE.replace("f = 1", "f = 4");
+        assertEquals(key(SOURCE, "A.fooVerification:()V"), key(changedBaz, "A.fooVerification:()V"));
+        assertNotEquals(key(SOURCE, "A.fooVerification:()V"), key(changedBar, "A.fooVerification:()V"));
+        assertNotEquals(key(SOURCE, "A.bazVerification:()V"), key(changedBaz, "A.bazVerification:()V"));
+    }
+
+    @Test
+    public void keyFollowsMethodReferences() throws Exception {
+        var source = """
+                class A {
+                    int f;
+                    void fooVerification() { Runnable r = this::bar; r.run(); }
+                    void bar() { f = 1; }
+                }
+                """;
+        assertNotEquals(key(source, "A.fooVerification:()V"), key(source.replace("f = 1", "f = 4"), "A.fooVerification:()V"));
+    }
+
+    @Test
+    public void methodName() {
+        assertEquals("fooVerification", VerdictCache.methodName("\"pkg.A.fooVerification:(I)V\""));
+        assertEquals("fooVerification", VerdictCache.methodName("void fooVerification(int a)"));
+    }
+}
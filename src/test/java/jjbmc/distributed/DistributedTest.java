@@ -0,0 +1,91 @@
+package jjbmc.distributed;
+
+import jjbmc.JbmcCall;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DistributedTest {
+    @TempDir
+    Path tmp;
+
+    @Test
+    public void workersClaimBundlesAndSteal() throws Exception {
+        var queue = new JobQueue<String>(it -> it.substring(0, 1));
+        var first = new Object();
+        var second = new Object();
+        queue.register(first);
+        queue.register(second);
+        List.of("a1", "a2", "a3", "b1").forEach(queue::add);
+
+        // the first worker claims all jobs of bundle a
+        assertEquals("a1", queue.take(first));
+        assertEquals("b1", queue.take(second));
+        // nothing shared is left, so the second worker steals from the tail
+        assertEquals("a3", queue.take(second));
+        // the jobs of a lost worker are shared again
+        queue.unregister(first);
+        assertEquals("a2", queue.take(second));
+        assertTrue(queue.pending().isEmpty());
+    }
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    public void jobsOfLostWorkersAreRunAgain() throws Exception {
+        var runs = tmp.resolve("runs");
+        var jbmc = tmp.resolve("jbmc");
+        // the first call hangs, until its worker is gone
+        Files.writeString(jbmc, """
+                #!/bin/sh
+                test -f A.class || exit 3
+                echo run >> "%s"
+                if [ "$(wc -l < "%s")" -eq 1 ]; then sleep 30; fi
+                echo "<cprover><cprover-status>SUCCESS</cprover-status></cprover>"
+                """.formatted(runs, runs));
+        Files.setPosixFilePermissions(jbmc, PosixFilePermissions.fromString("rwxr-xr-x"));
+        var workspace = Files.createDirectories(tmp.resolve("workspace"));
+        Files.write(workspace.resolve("A.class"), new byte[]{(byte) 0xCA, (byte) 0xFE});
+
+        try (var coordinator = new Coordinator(new InetSocketAddress("localhost", 0), "secret")) {
+            var address = "localhost:" + coordinator.getPort();
+            var lost = new Worker(address, 1, jbmc.toString(), tmp.resolve("lost"), "secret");
+            lost.start();
+            var call = coordinator.start(List.of("A", "--function", "f"), workspace, 60_000,
+                    stdout -> new String(stdout.readAllBytes(), StandardCharsets.UTF_8));
+            while (!Files.exists(runs)) {
+                Thread.sleep(10);
+            }
+            lost.close();
+
+            for (int i = 0; i < 2; i++) {
+                new Worker(address, 2, jbmc.toString(), tmp.resolve("worker" + i), "secret").start();
+            }
+            assertTrue(call.await().contains("SUCCESS"));
+            assertEquals(0, call.exitValue());
+            assertFalse(call.isTimedOut());
+
+            var calls = new ArrayList<JbmcCall<String>>();
+            for (int i = 0; i < 6; i++) {
+                calls.add(coordinator.start(List.of("A", "--function", "g" + i), workspace, 60_000,
+                        stdout -> new String(stdout.readAllBytes(), StandardCharsets.UTF_8)));
+            }
+            for (var it : calls) {
+                assertTrue(it.await().contains("SUCCESS"));
+            }
+            assertEquals(8, Files.readAllLines(runs).size());
+        }
+    }
+}
@@ -11,6 +11,7 @@ import com.github.javaparser.symbolsolver.resolution.typesolvers.TypeSolverBuild
 import com.github.javaparser.utils.SourceRoot;
 import com.google.common.truth.Truth;
 import jjbmc.JJBMCOptions;
+import jjbmc.VerificationContext;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
@@ -108,8 +109,7 @@ class Jml2JavaExpressionTranslatorTest {
     void testTranslation(String expr, String expected, TranslationMode mode) {
         var e = StaticJavaParser.parseJmlExpression(expr);
         parent.addAndGetStatement(e);
-        Jml2JavaExpressionTranslator.counter.set(0);
-        var r = Jml2JavaFacade.translate(e, mode);
+        var r = Jml2JavaFacade.translate(e, mode, new VerificationContext(new JJBMCOptions()));
         var actual = r.necessaryVars.stream().map(Objects::toString).collect(Collectors.joining("\n")) + "\n" + new BlockStmt(r.statements) + "\n" + r.value;
         Truth.assertThat(actual.replaceAll("\\s+", " ").trim())
                 .isEqualTo(expected.replaceAll("\\s+", " ").trim());
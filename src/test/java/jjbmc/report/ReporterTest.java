@@ -0,0 +1,82 @@
+package jjbmc.report;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import jjbmc.JBMCOutput;
+import jjbmc.VerificationResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ReporterTest {
+    @TempDir
+    Path tmp;
+
+    private static VerificationResult failing() {
+        var output = new JBMCOutput();
+        output.setProverStatus("FAILURE");
+        output.getPropertyStatus().put("java::A.f:()V.assertion.1", "FAILURE");
+        output.getPropertyStatus().put("java::A.f:()V.null-pointer-exception.1", "SUCCESS");
+        output.getFailedProperties().add("java::A.f:()V.assertion.1");
+        // as the trace parser records it without -tr
+        output.addProperty("java::A.f:()V.assertion.1", null, 4, "assertion at file A.java line 12", null);
+        var result = new VerificationResult("A.f()V");
+        result.setOutput(output);
+        return result;
+    }
+
+    private static VerificationResult timeout() {
+        var result = new VerificationResult("A.g()V");
+        result.setStatus(VerificationResult.Status.TIMEOUT);
+        return result;
+    }
+
+    private void report(Reporter.Format format, Path file) throws Exception {
+        try (var reporter = format.create(file)) {
+            reporter.onStart(Path.of("A.java"));
+            reporter.onResult(failing());
+            // written before the report is complete
+            assertTrue(Files.size(file) > 0);
+            reporter.onResult(timeout());
+        }
+    }
+
+    @Test
+    public void jsonLinesHasOneObjectPerFunction() throws Exception {
+        var file = tmp.resolve("results.jsonl");
+        report(Reporter.Format.JSONL, file);
+        var lines = Files.readAllLines(file);
+        assertEquals(2, lines.size());
+        var first = JsonParser.parseString(lines.get(0)).getAsJsonObject();
+        assertEquals("A.java", first.get("file").getAsString());
+        assertEquals(2, first.getAsJsonArray("properties").size());
+        assertEquals("TIMEOUT", JsonParser.parseString(lines.get(1)).getAsJsonObject().get("status").getAsString());
+    }
+
+    @Test
+    public void junitAndSarifAreCompleteDocuments() throws Exception {
+        var junit = tmp.resolve("results.xml");
+        report(Reporter.Format.JUNIT, junit);
+        var document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(junit.toFile());
+        assertEquals(2, document.getElementsByTagName("testcase").getLength());
+        assertEquals(1, document.getElementsByTagName("failure").getLength());
+        assertEquals(1, document.getElementsByTagName("error").getLength());
+
+        var sarif = tmp.resolve("results.sarif");
+        report(Reporter.Format.SARIF, sarif);
+        JsonObject log = JsonParser.parseString(Files.readString(sarif)).getAsJsonObject();
+        var results = log.getAsJsonArray("runs").get(0).getAsJsonObject().getAsJsonArray("results");
+        assertEquals(2, results.size());
+        assertEquals("assertion", results.get(0).getAsJsonObject().get("ruleId").getAsString());
+        var physical = results.get(0).getAsJsonObject().getAsJsonArray("locations").get(0).getAsJsonObject()
+                .getAsJsonObject("physicalLocation");
+        assertEquals(4, physical.getAsJsonObject("region").get("startLine").getAsInt());
+        assertEquals("jjbmc-timeout", results.get(1).getAsJsonObject().get("ruleId").getAsString());
+    }
+}
@@ -0,0 +1,41 @@
+package jjbmc.server;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class VerificationServerTest {
+    private static JsonObject request(String json) {
+        return JsonParser.parseString(json).getAsJsonObject();
+    }
+
+    @Test
+    public void allowedJbmcOptionsArePassedOn() {
+        var args = VerificationServer.toArgs(request("""
+                {"file": "/abs/A.java", "jbmcOptions": ["--java-assume-inputs-non-null", "--unwind 5 --paths lifo"]}
+                """));
+        assertEquals(List.of("/abs/A.java", "-j=--java-assume-inputs-non-null", "-j=--unwind 5 --paths lifo"), args);
+    }
+
+    @Test
+    public void otherJbmcOptionsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> VerificationServer.toArgs(request("""
+                {"file": "/abs/A.java", "jbmcOptions": ["--outfile /home/user/.bashrc"]}
+                """)));
+        // hidden behind an allowed option
+        assertThrows(IllegalArgumentException.class, () -> VerificationServer.toArgs(request("""
+                {"file": "/abs/A.java", "jbmcOptions": ["--unwind 5 --json-ui"]}
+                """)));
+        assertThrows(IllegalArgumentException.class, () -> VerificationServer.toArgs(request("""
+                {"file": "/abs/A.java", "jbmcOptions": ["--unwind --outfile"]}
+                """)));
+        assertThrows(IllegalArgumentException.class, () -> VerificationServer.toArgs(request("""
+                {"file": "/abs/A.java", "args": ["-jbmc", "/tmp/evil"]}
+                """)));
+    }
+}
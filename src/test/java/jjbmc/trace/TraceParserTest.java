@@ -0,0 +1,81 @@
+package jjbmc.trace;
+
+import jjbmc.JBMCOutput;
+import jjbmc.JJBMCOptions;
+import jjbmc.VerificationContext;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class TraceParserTest {
+    /**
+     * The output of {@code jbmc --xml-ui --trace} for a verification function whose assert in line 12 of the
+     * translation fails, shortened to the interesting elements.
+     */
+    private static final String OUTPUT = """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <cprover>
+            <program>JBMC 5.22.0 (cbmc-5.22.0) 64-bit x86_64 linux</program>
+            <message type="STATUS-MESSAGE">
+              <text>Parsing Max.class</text>
+            </message>
+            <message type="STATUS-MESSAGE">
+              <text>Running SAT</text>
+            </message>
+            <result property="java::Max.maxVerification:(II)I.null-pointer-exception.1" status="SUCCESS"/>
+            <result property="java::Max.maxVerification:(II)I.assertion.1" status="FAILURE">
+              <goto_trace>
+                <assignment assignment_type="actual_parameter" base_name="a" display_name="a" hidden="false" identifier="java::Max.maxVerification:(II)I::a" mode="java" step_nr="10" thread="0">
+                  <location file="Max.java" function="java::Max.maxVerification:(II)I" line="9" working-directory="/tmp/jjbmc"/>
+                  <full_lhs>a</full_lhs>
+                  <full_lhs_value binary="00000000000000000000000000000010">2</full_lhs_value>
+                </assignment>
+                <assignment assignment_type="state" base_name="returnVar" display_name="returnVar" hidden="false" identifier="java::Max.maxVerification:(II)I::1::returnVar" mode="java" step_nr="21" thread="0">
+                  <location file="Max.java" function="java::Max.maxVerification:(II)I" line="11" working-directory="/tmp/jjbmc"/>
+                  <full_lhs>returnVar</full_lhs>
+                  <full_lhs_value binary="00000000000000000000000000000001">1</full_lhs_value>
+                </assignment>
+                <failure hidden="false" property="java::Max.maxVerification:(II)I.assertion.1" reason="assertion at file Max.java line 12 function java::Max.maxVerification:(II)I bytecode-index 21" step_nr="24" thread="0">
+                  <location bytecode-index="21" file="Max.java" function="java::Max.maxVerification:(II)I" line="12" working-directory="/tmp/jjbmc"/>
+                </failure>
+              </goto_trace>
+            </result>
+            <cprover-status>FAILURE</cprover-status>
+            </cprover>
+            """;
+
+    private static final String PROPERTY = "java::Max.maxVerification:(II)I.assertion.1";
+
+    private static JBMCOutput parse(boolean printTrace) throws Exception {
+        var context = new VerificationContext(new JJBMCOptions());
+        context.getTraceInformation().addLineEquality(12, 4);
+        return TraceParser.parse(OUTPUT, printTrace, context);
+    }
+
+    @Test
+    public void failureIsReportedInOriginalLineWithoutTrace() throws Exception {
+        var output = parse(false);
+        assertEquals(List.of(PROPERTY), output.getProperties());
+        assertEquals(List.of(4), output.getLineNumbers());
+        assertEquals("assertion at file Max.java line 12 function java::Max.maxVerification:(II)I bytecode-index 21",
+                output.getReasons().get(0));
+        assertNull(output.getTraces().get(0));
+        assertEquals("FAILURE", output.getProverStatus());
+    }
+
+    @Test
+    public void failureIsReportedInOriginalLineWithTrace() throws Exception {
+        var output = parse(true);
+        int idx = output.getProperties().indexOf(PROPERTY);
+        assertEquals(4, output.getLineNumbers().get(idx));
+        assertNotNull(output.getTraces().get(idx));
+        // no assert text was recorded for the line, which must not drop the result
+        assertNull(output.getAsserts().get(idx));
+        assertEquals(List.of("java::Max.maxVerification:(II)I.null-pointer-exception.1", PROPERTY),
+                output.getProperties());
+    }
+}
@@ -2,14 +2,11 @@ package jjbmc.utils;
 
 import com.github.javaparser.JavaParser;
 import com.github.javaparser.ParseResult;
-import com.github.javaparser.ParserConfiguration;
 import com.github.javaparser.ast.CompilationUnit;
-import com.github.javaparser.symbolsolver.JavaSymbolSolver;
-import com.github.javaparser.symbolsolver.resolution.typesolvers.TypeSolverBuilder;
-import com.google.common.collect.ImmutableList;
 import jjbmc.FunctionNameVisitor.TestBehaviour;
 import jjbmc.JJBMCOptions;
 import jjbmc.Operations;
+import jjbmc.VerificationSession;
 import org.junit.jupiter.api.Assumptions;
 
 import java.io.BufferedReader;
@@ -54,15 +51,7 @@ public class Utils {
         operations.compile();
 
         debug("Parsing file for functions.");
-        ParserConfiguration config = new ParserConfiguration();
-        config.setJmlKeys(ImmutableList.of(ImmutableList.of("openjml")));
-        config.setProcessJml(true);
-        config.setSymbolResolver(new JavaSymbolSolver(
-                new TypeSolverBuilder()
-                        .withSourceCode(options.getTmpFolder())
-                        .withCurrentJRE()
-                        .build()));
-        JavaParser parser = new JavaParser(config);
+        JavaParser parser = new JavaParser(VerificationSession.getDefault().createParserConfiguration(options.getTmpFolder()));
 
         ParseResult<CompilationUnit> result;
         try {